@@ -0,0 +1,151 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 外部排序工具类
+ * 将无法整体装入内存的文本行分批排序后写入临时文件，再多路归并为一个有序文件，
+ * 配合{@link StreamingDiff}比较未排序的大文件
+ */
+public class ExternalSort {
+
+    /**
+     * 默认每批在内存中排序的行数
+     */
+    public static final int DEFAULT_LINES_PER_RUN = 1_000_000;
+
+    /**
+     * 按字符串自然顺序对文件逐行排序
+     * @param input 输入文件
+     * @param output 输出文件（已存在则覆盖）
+     * @param charset 文件编码
+     */
+    public static void sortLines(Path input, Path output, Charset charset) throws IOException {
+        sortLines(input, output, charset, DEFAULT_LINES_PER_RUN, Comparator.naturalOrder());
+    }
+
+    /**
+     * 对文件逐行排序
+     * @param input 输入文件
+     * @param output 输出文件（已存在则覆盖）
+     * @param charset 文件编码
+     * @param linesPerRun 每批在内存中排序的行数
+     * @param comparator 排序规则
+     */
+    public static void sortLines(Path input, Path output, Charset charset,
+                                 int linesPerRun, Comparator<String> comparator) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(input, charset)) {
+            sortLines(reader.lines().iterator(), output, charset, linesPerRun, comparator);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 对任意来源的文本行排序并写入文件
+     * @param lines 文本行
+     * @param output 输出文件（已存在则覆盖）
+     * @param charset 文件编码
+     * @param linesPerRun 每批在内存中排序的行数
+     * @param comparator 排序规则
+     */
+    public static void sortLines(Iterator<String> lines, Path output, Charset charset,
+                                 int linesPerRun, Comparator<String> comparator) throws IOException {
+        if (linesPerRun <= 0) {
+            throw new IllegalArgumentException("linesPerRun must be positive: " + linesPerRun);
+        }
+        List<Path> runs = new ArrayList<>();
+        try {
+            List<String> buffer = new ArrayList<>();
+            while (lines.hasNext()) {
+                buffer.add(lines.next());
+                if (buffer.size() >= linesPerRun) {
+                    runs.add(spill(buffer, charset, comparator));
+                    buffer.clear();
+                }
+            }
+            // 数据能一次装入内存时不再写临时文件
+            if (runs.isEmpty()) {
+                buffer.sort(comparator);
+                Files.write(output, buffer, charset);
+                return;
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(spill(buffer, charset, comparator));
+            }
+            merge(runs, output, charset, comparator);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * 将一批行排序后写入临时文件
+     */
+    private static Path spill(List<String> buffer, Charset charset,
+                              Comparator<String> comparator) throws IOException {
+        buffer.sort(comparator);
+        Path run = Files.createTempFile("external-sort-", ".run");
+        Files.write(run, buffer, charset);
+        return run;
+    }
+
+    /**
+     * 用优先队列对所有临时文件做多路归并
+     */
+    private static void merge(List<Path> runs, Path output, Charset charset,
+                              Comparator<String> comparator) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>(runs.size());
+        PriorityQueue<RunHead> heads = new PriorityQueue<>(runs.size(),
+                (a, b) -> comparator.compare(a.line, b.line));
+        try (BufferedWriter writer = Files.newBufferedWriter(output, charset)) {
+            for (Path run : runs) {
+                BufferedReader reader = Files.newBufferedReader(run, charset);
+                readers.add(reader);
+                String line = reader.readLine();
+                if (line != null) {
+                    heads.add(new RunHead(line, reader));
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunHead head = heads.poll();
+                writer.write(head.line);
+                writer.newLine();
+                String next = head.reader.readLine();
+                if (next != null) {
+                    head.line = next;
+                    heads.add(head);
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * 某个临时文件当前读到的行
+     */
+    private static final class RunHead {
+
+        private String line;
+        private final BufferedReader reader;
+
+        RunHead(String line, BufferedReader reader) {
+            this.line = line;
+            this.reader = reader;
+        }
+    }
+}
@@ -1,12 +1,38 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * List比较工具类
  * 提供交集、差集、并集等操作
+ * 
+ * 交集、差集、对称差集只对较小的一侧建立一次索引，时间复杂度O(n+m)，
+ * 并保持list1的元素顺序和重复元素
  */
 public class ListUtils {
     
+    /**
+     * 索引一侧不超过该大小时直接线性扫描，省去建立索引的开销
+     */
+    private static final int LINEAR_SCAN_THRESHOLD = 16;
+    
+    /**
+     * 索引一侧达到该大小、已经按自然顺序排好序，且元素类型的自然顺序与equals一致时，
+     * 直接在原顺序上二分查找代替哈希表，省去为每个元素分配哈希节点
+     */
+    private static final int SORTED_INDEX_THRESHOLD = 1 << 16;
+    
+    /**
+     * compareTo与equals语义一致、可以安全地用排序代替哈希的元素类型
+     */
+    private static final Set<Class<?>> NATURALLY_ORDERED_TYPES = new HashSet<>(Arrays.asList(
+            String.class, Long.class, Integer.class, Short.class, Byte.class, Character.class));
+    
     /**
      * 获取两个List的交集
      * @param list1 第一个List
@@ -18,8 +44,9 @@ public class ListUtils {
         if (list1 == null || list2 == null) {
             return new ArrayList<>();
         }
+        Predicate<Object> inList2 = membership(list1, list2);
         return list1.stream()
-                .filter(list2::contains)
+                .filter(inList2)
                 .collect(Collectors.toList());
     }
     
@@ -37,8 +64,9 @@ public class ListUtils {
         if (list2 == null) {
             return new ArrayList<>(list1);
         }
+        Predicate<Object> inList2 = membership(list1, list2);
         return list1.stream()
-                .filter(item -> !list2.contains(item))
+                .filter(inList2.negate())
                 .collect(Collectors.toList());
     }
     
@@ -68,12 +96,39 @@ public class ListUtils {
      * @return 对称差集List
      */
     public static <T> List<T> getSymmetricDifference(List<T> list1, List<T> list2) {
-        List<T> difference1 = getDifference(list1, list2);
-        List<T> difference2 = getDifference(list2, list1);
+        if (list1 == null || list2 == null) {
+            List<T> difference1 = getDifference(list1, list2);
+            List<T> difference2 = getDifference(list2, list1);
+            
+            List<T> symmetricDifference = new ArrayList<>();
+            symmetricDifference.addAll(difference1);
+            symmetricDifference.addAll(difference2);
+            return symmetricDifference;
+        }
         
-        List<T> symmetricDifference = new ArrayList<>();
-        symmetricDifference.addAll(difference1);
-        symmetricDifference.addAll(difference2);
+        // 只为较小的一侧建立一次索引：扫描较大一侧时既得到它独有的元素，
+        // 也标记出较小一侧中被命中的元素
+        boolean indexFirst = list1.size() < list2.size();
+        List<T> small = indexFirst ? list1 : list2;
+        List<T> large = indexFirst ? list2 : list1;
+        Index index = Index.build(small);
+        
+        List<T> largeOnly = new ArrayList<>();
+        for (T item : large) {
+            if (!index.mark(item)) {
+                largeOnly.add(item);
+            }
+        }
+        List<T> smallOnly = new ArrayList<>();
+        for (T item : small) {
+            if (!index.isMarked(item)) {
+                smallOnly.add(item);
+            }
+        }
+        
+        List<T> symmetricDifference = new ArrayList<>(smallOnly.size() + largeOnly.size());
+        symmetricDifference.addAll(indexFirst ? smallOnly : largeOnly);
+        symmetricDifference.addAll(indexFirst ? largeOnly : smallOnly);
         return symmetricDifference;
     }
     
@@ -116,6 +171,8 @@ public class ListUtils {
     
     /**
      * 检查两个List是否相等（忽略顺序）
+     * 按多重集比较，每个元素出现的次数也必须相同，即[a, a, b]与[a, b, b]不相等
+     * 只对list1建立计数表，用list2逐个扣减，遇到第一个不匹配的元素立即返回
      * @param list1 第一个List
      * @param list2 第二个List
      * @param <T> 泛型类型
@@ -132,9 +189,18 @@ public class ListUtils {
             return false;
         }
         
-        Set<T> set1 = new HashSet<>(list1);
-        Set<T> set2 = new HashSet<>(list2);
-        return set1.equals(set2);
+        Map<T, int[]> counts = new HashMap<>(Math.max(16, (int) (list1.size() / 0.75f) + 1));
+        for (T item : list1) {
+            counts.computeIfAbsent(item, key -> new int[1])[0]++;
+        }
+        // 两个List长度相同，list2的每个元素都能扣减成功即说明计数完全一致
+        for (T item : list2) {
+            int[] count = counts.get(item);
+            if (count == null || count[0]-- == 0) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
@@ -153,4 +219,1130 @@ public class ListUtils {
         }
         return list1.equals(list2);
     }
-}
\ No newline at end of file
+    
+    /**
+     * 按键获取两个List的交集（保持list1的顺序和重复元素）
+     * 只对提取出的键建立索引并比较，返回list1中的原始对象，
+     * 适合equals开销大或没有重写equals/hashCode的对象
+     * @param list1 第一个List
+     * @param list2 第二个List
+     * @param keyExtractor 键提取函数
+     * @param <T> 泛型类型
+     * @param <K> 键类型
+     * @return 交集List
+     */
+    public static <T, K> List<T> getIntersection(List<T> list1, List<T> list2,
+                                                 Function<? super T, ? extends K> keyExtractor) {
+        if (list1 == null || list2 == null) {
+            return new ArrayList<>();
+        }
+        List<K> keys1 = keysOf(list1, keyExtractor);
+        return filterByKey(list1, keys1, membership(keys1, keysOf(list2, keyExtractor)), true);
+    }
+    
+    /**
+     * 按键获取list1相对于list2的差集（保持list1的顺序和重复元素）
+     * @param list1 第一个List
+     * @param list2 第二个List
+     * @param keyExtractor 键提取函数
+     * @param <T> 泛型类型
+     * @param <K> 键类型
+     * @return 差集List
+     */
+    public static <T, K> List<T> getDifference(List<T> list1, List<T> list2,
+                                               Function<? super T, ? extends K> keyExtractor) {
+        if (list1 == null) {
+            return new ArrayList<>();
+        }
+        if (list2 == null) {
+            return new ArrayList<>(list1);
+        }
+        List<K> keys1 = keysOf(list1, keyExtractor);
+        return filterByKey(list1, keys1, membership(keys1, keysOf(list2, keyExtractor)), false);
+    }
+    
+    /**
+     * 按键获取两个List的对称差集
+     * @param list1 第一个List
+     * @param list2 第二个List
+     * @param keyExtractor 键提取函数
+     * @param <T> 泛型类型
+     * @param <K> 键类型
+     * @return 对称差集List
+     */
+    public static <T, K> List<T> getSymmetricDifference(List<T> list1, List<T> list2,
+                                                        Function<? super T, ? extends K> keyExtractor) {
+        if (list1 == null || list2 == null) {
+            List<T> symmetricDifference = new ArrayList<>();
+            symmetricDifference.addAll(getDifference(list1, list2, keyExtractor));
+            symmetricDifference.addAll(getDifference(list2, list1, keyExtractor));
+            return symmetricDifference;
+        }
+        
+        List<K> keys1 = keysOf(list1, keyExtractor);
+        List<K> keys2 = keysOf(list2, keyExtractor);
+        BitSet matched1 = new BitSet(keys1.size());
+        BitSet matched2 = new BitSet(keys2.size());
+        if (keys2.size() <= keys1.size()) {
+            matchBoth(keys2, keys1, matched2, matched1);
+        } else {
+            matchBoth(keys1, keys2, matched1, matched2);
+        }
+        
+        List<T> symmetricDifference = new ArrayList<>();
+        addUnmatched(list1, matched1, symmetricDifference);
+        addUnmatched(list2, matched2, symmetricDifference);
+        return symmetricDifference;
+    }
+    
+    /**
+     * 按键获取两个List的并集，键相同时保留首次出现的对象
+     * @param list1 第一个List
+     * @param list2 第二个List
+     * @param keyExtractor 键提取函数
+     * @param <T> 泛型类型
+     * @param <K> 键类型
+     * @return 并集List
+     */
+    public static <T, K> List<T> getUnion(List<T> list1, List<T> list2,
+                                          Function<? super T, ? extends K> keyExtractor) {
+        return getUnion(list1, list2, keyExtractor, (first, second) -> first);
+    }
+    
+    /**
+     * 按键获取两个List的并集，键相同的对象用合并函数合并
+     * 结果按键首次出现的顺序排列
+     * @param list1 第一个List
+     * @param list2 第二个List
+     * @param keyExtractor 键提取函数
+     * @param mergeFunction 合并函数，参数依次为已有对象和后出现的对象
+     * @param <T> 泛型类型
+     * @param <K> 键类型
+     * @return 并集List
+     */
+    public static <T, K> List<T> getUnion(List<T> list1, List<T> list2,
+                                          Function<? super T, ? extends K> keyExtractor,
+                                          BinaryOperator<T> mergeFunction) {
+        int expectedSize = (list1 != null ? list1.size() : 0) + (list2 != null ? list2.size() : 0);
+        Map<K, T> unionMap = new LinkedHashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+        for (List<T> list : Arrays.asList(list1, list2)) {
+            if (list == null) {
+                continue;
+            }
+            for (T item : list) {
+                K key = keyExtractor.apply(item);
+                if (unionMap.containsKey(key)) {
+                    unionMap.put(key, mergeFunction.apply(unionMap.get(key), item));
+                } else {
+                    unionMap.put(key, item);
+                }
+            }
+        }
+        return new ArrayList<>(unionMap.values());
+    }
+    
+    /**
+     * 获取list1与预先构建的参照集合的交集（保持list1的顺序和重复元素）
+     * 参照集合可以反复使用，每次调用只遍历list1，不再为参照数据建立索引
+     * @param list1 待比较的List
+     * @param reference 参照集合
+     * @param <T> 泛型类型
+     * @return 交集List
+     */
+    public static <T> List<T> getIntersection(List<T> list1, ProbeSet<?> reference) {
+        if (list1 == null || reference == null) {
+            return new ArrayList<>();
+        }
+        return list1.stream()
+                .filter(reference::contains)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 获取list1相对于预先构建的参照集合的差集（保持list1的顺序和重复元素）
+     * 适合小批量数据反复与超大黑名单比较的场景
+     * @param list1 待比较的List
+     * @param reference 参照集合
+     * @param <T> 泛型类型
+     * @return 差集List
+     */
+    public static <T> List<T> getDifference(List<T> list1, ProbeSet<?> reference) {
+        if (list1 == null) {
+            return new ArrayList<>();
+        }
+        if (reference == null) {
+            return new ArrayList<>(list1);
+        }
+        return list1.stream()
+                .filter(item -> !reference.contains(item))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 获取两个long数组的交集（保持array1的顺序和重复元素）
+     * 基于开放寻址的long哈希集合，不对元素装箱
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 交集数组
+     */
+    public static long[] getIntersection(long[] array1, long[] array2) {
+        if (array1 == null || array2 == null) {
+            return new long[0];
+        }
+        return filter(array1, matchedIn(array1, array2), true);
+    }
+    
+    /**
+     * 获取array1相对于array2的差集（保持array1的顺序和重复元素）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 差集数组
+     */
+    public static long[] getDifference(long[] array1, long[] array2) {
+        if (array1 == null) {
+            return new long[0];
+        }
+        if (array2 == null) {
+            return array1.clone();
+        }
+        return filter(array1, matchedIn(array1, array2), false);
+    }
+    
+    /**
+     * 获取两个long数组的并集（去重，保持首次出现的顺序）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 并集数组
+     */
+    public static long[] getUnion(long[] array1, long[] array2) {
+        long[] first = array1 != null ? array1 : new long[0];
+        long[] second = array2 != null ? array2 : new long[0];
+        LongHashSet seen = new LongHashSet(first.length + second.length);
+        long[] union = new long[first.length + second.length];
+        int size = 0;
+        for (long value : first) {
+            if (seen.add(value)) {
+                union[size++] = value;
+            }
+        }
+        for (long value : second) {
+            if (seen.add(value)) {
+                union[size++] = value;
+            }
+        }
+        return Arrays.copyOf(union, size);
+    }
+    
+    /**
+     * 获取两个long数组的对称差集
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 对称差集数组
+     */
+    public static long[] getSymmetricDifference(long[] array1, long[] array2) {
+        long[] difference1 = getDifference(array1, array2);
+        long[] difference2 = getDifference(array2, array1);
+        
+        long[] symmetricDifference = Arrays.copyOf(difference1, difference1.length + difference2.length);
+        System.arraycopy(difference2, 0, symmetricDifference, difference1.length, difference2.length);
+        return symmetricDifference;
+    }
+    
+    /**
+     * 检查两个long数组是否相等（忽略顺序，重复元素的个数也必须相同）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 是否相等
+     */
+    public static boolean isEqualIgnoreOrder(long[] array1, long[] array2) {
+        if (array1 == null && array2 == null) {
+            return true;
+        }
+        if (array1 == null || array2 == null) {
+            return false;
+        }
+        if (array1.length != array2.length) {
+            return false;
+        }
+        
+        LongCounter counts = new LongCounter(array1.length);
+        for (long value : array1) {
+            counts.increment(value);
+        }
+        for (long value : array2) {
+            if (!counts.decrement(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 获取两个int数组的交集（保持array1的顺序和重复元素）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 交集数组
+     */
+    public static int[] getIntersection(int[] array1, int[] array2) {
+        if (array1 == null || array2 == null) {
+            return new int[0];
+        }
+        return toIntArray(getIntersection(toLongArray(array1), toLongArray(array2)));
+    }
+    
+    /**
+     * 获取array1相对于array2的差集（保持array1的顺序和重复元素）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 差集数组
+     */
+    public static int[] getDifference(int[] array1, int[] array2) {
+        if (array1 == null) {
+            return new int[0];
+        }
+        if (array2 == null) {
+            return array1.clone();
+        }
+        return toIntArray(getDifference(toLongArray(array1), toLongArray(array2)));
+    }
+    
+    /**
+     * 获取两个int数组的并集（去重，保持首次出现的顺序）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 并集数组
+     */
+    public static int[] getUnion(int[] array1, int[] array2) {
+        return toIntArray(getUnion(toLongArray(array1), toLongArray(array2)));
+    }
+    
+    /**
+     * 获取两个int数组的对称差集
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 对称差集数组
+     */
+    public static int[] getSymmetricDifference(int[] array1, int[] array2) {
+        return toIntArray(getSymmetricDifference(toLongArray(array1), toLongArray(array2)));
+    }
+    
+    /**
+     * 检查两个int数组是否相等（忽略顺序，重复元素的个数也必须相同）
+     * @param array1 第一个数组
+     * @param array2 第二个数组
+     * @return 是否相等
+     */
+    public static boolean isEqualIgnoreOrder(int[] array1, int[] array2) {
+        return isEqualIgnoreOrder(toLongArray(array1), toLongArray(array2));
+    }
+    
+    /**
+     * 一次性比较两个List，同时得到交集、两个方向的差集和并集
+     * 只建立一次索引并各扫描一遍两个List，各结果在首次访问时才生成
+     * null按空List处理
+     * @param list1 第一个List
+     * @param list2 第二个List
+     * @param <T> 泛型类型
+     * @return 比较结果
+     */
+    public static <T> DiffResult<T> diff(List<T> list1, List<T> list2) {
+        List<T> left = list1 != null ? new ArrayList<>(list1) : new ArrayList<>();
+        List<T> right = list2 != null ? new ArrayList<>(list2) : new ArrayList<>();
+        
+        BitSet leftMatched = new BitSet(left.size());
+        BitSet rightMatched = new BitSet(right.size());
+        if (right.size() <= left.size()) {
+            matchBoth(right, left, rightMatched, leftMatched);
+        } else {
+            matchBoth(left, right, leftMatched, rightMatched);
+        }
+        return new DiffResult<>(left, right, leftMatched, rightMatched);
+    }
+    
+    /**
+     * 获取并行模式的集合运算
+     * 基于ForkJoinPool对输入分片，各分片独立构建哈希集合后合并结果；
+     * 输入规模低于阈值时退回顺序实现，结果与顺序方法完全一致
+     * @return 并行模式（默认使用公共ForkJoinPool）
+     */
+    public static Parallel parallel() {
+        return Parallel.DEFAULT;
+    }
+    
+    /**
+     * 构建"元素是否在list2中"的判定条件
+     * 较小的一侧只建立一次索引；当list1较小时，扫描list2为list1的元素做标记，
+     * 全部命中后提前结束扫描
+     * @param list1 待过滤的List
+     * @param list2 参照List
+     * @return 判定条件
+     */
+    private static Predicate<Object> membership(List<?> list1, List<?> list2) {
+        if (list2.size() <= list1.size()) {
+            return Index.build(list2)::contains;
+        }
+        Index index = Index.build(list1);
+        for (Object item : list2) {
+            index.mark(item);
+            if (index.allMarked()) {
+                break;
+            }
+        }
+        return index::isMarked;
+    }
+    
+    /**
+     * 为较小一侧建立索引，扫描较大一侧时记录命中位置并标记索引，
+     * 再根据索引标记得到较小一侧的命中位置
+     */
+    private static void matchBoth(List<?> small, List<?> large, BitSet smallMatched, BitSet largeMatched) {
+        Index index = Index.build(small);
+        for (int i = 0; i < large.size(); i++) {
+            if (index.mark(large.get(i))) {
+                largeMatched.set(i);
+            }
+        }
+        for (int i = 0; i < small.size(); i++) {
+            if (index.isMarked(small.get(i))) {
+                smallMatched.set(i);
+            }
+        }
+    }
+    
+    /**
+     * 按位置依次追加未命中的元素，对非随机访问的List也只遍历一次
+     */
+    private static <T> void addUnmatched(List<T> list, BitSet matched, List<T> target) {
+        int index = 0;
+        for (T item : list) {
+            if (!matched.get(index++)) {
+                target.add(item);
+            }
+        }
+    }
+    
+    /**
+     * 按位置保留键命中（或未命中）的元素，键与元素一一对应，不再重新提取键
+     */
+    private static <T, K> List<T> filterByKey(List<T> list, List<K> keys, Predicate<Object> lookup,
+                                              boolean keepMatches) {
+        List<T> result = new ArrayList<>();
+        int index = 0;
+        for (T item : list) {
+            if (lookup.test(keys.get(index++)) == keepMatches) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 提取List中每个元素的键，每个元素只调用一次键提取函数，建立索引、标记和过滤都按位置使用这份键
+     */
+    private static <T, K> List<K> keysOf(List<T> list, Function<? super T, ? extends K> keyExtractor) {
+        List<K> keys = new ArrayList<>(list.size());
+        for (T item : list) {
+            keys.add(keyExtractor.apply(item));
+        }
+        return keys;
+    }
+    
+    /**
+     * 构建"元素是否在array2中"的集合，只对较小的一侧建立索引
+     * 当array1较小时，返回的集合只包含array1中被array2命中的元素
+     */
+    private static LongHashSet matchedIn(long[] array1, long[] array2) {
+        if (array2.length <= array1.length) {
+            return LongHashSet.of(array2);
+        }
+        LongHashSet index = LongHashSet.of(array1);
+        LongHashSet matched = new LongHashSet(index.size());
+        for (long value : array2) {
+            if (index.contains(value)) {
+                matched.add(value);
+                if (matched.size() == index.size()) {
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+    
+    private static long[] filter(long[] array, LongHashSet lookup, boolean keepMatches) {
+        long[] result = new long[array.length];
+        int size = 0;
+        for (long value : array) {
+            if (lookup.contains(value) == keepMatches) {
+                result[size++] = value;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+    
+    private static long[] toLongArray(int[] array) {
+        if (array == null) {
+            return null;
+        }
+        long[] result = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+    
+    private static int[] toIntArray(long[] array) {
+        int[] result = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = (int) array[i];
+        }
+        return result;
+    }
+    
+    /**
+     * 一侧List去重后的索引，每个不同元素带一个"已命中"标记
+     * 按大小在线性扫描、哈希表和排序数组三种实现之间选择
+     */
+    private abstract static class Index {
+        
+        private int distinct;
+        private int marked;
+        
+        static Index build(List<?> side) {
+            if (side.size() <= LINEAR_SCAN_THRESHOLD) {
+                return new LinearIndex(side);
+            }
+            if (side.size() >= SORTED_INDEX_THRESHOLD && isNaturallySorted(side)) {
+                return new SortedIndex(side);
+            }
+            return new HashIndex(side);
+        }
+        
+        /**
+         * 元素所在的位置，不存在时返回-1
+         */
+        abstract int slotOf(Object item);
+        
+        abstract boolean isMarked(int slot);
+        
+        abstract void setMarked(int slot);
+        
+        boolean contains(Object item) {
+            return slotOf(item) >= 0;
+        }
+        
+        /**
+         * 标记元素已命中
+         * @return 元素是否存在于索引中
+         */
+        boolean mark(Object item) {
+            int slot = slotOf(item);
+            if (slot < 0) {
+                return false;
+            }
+            if (!isMarked(slot)) {
+                setMarked(slot);
+                marked++;
+            }
+            return true;
+        }
+        
+        boolean isMarked(Object item) {
+            int slot = slotOf(item);
+            return slot >= 0 && isMarked(slot);
+        }
+        
+        boolean allMarked() {
+            return marked == distinct;
+        }
+        
+        void setDistinct(int distinct) {
+            this.distinct = distinct;
+        }
+        
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static boolean isNaturallySorted(List<?> side) {
+            Object first = side.get(0);
+            if (first == null || !NATURALLY_ORDERED_TYPES.contains(first.getClass())) {
+                return false;
+            }
+            Class<?> type = first.getClass();
+            Comparable previous = (Comparable) first;
+            for (Object item : side) {
+                if (item == null || item.getClass() != type || previous.compareTo(item) > 0) {
+                    return false;
+                }
+                previous = (Comparable) item;
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * 小List直接线性查找，以首次出现的位置作为标记位置
+     */
+    private static final class LinearIndex extends Index {
+        
+        private final List<?> items;
+        private final boolean[] marks;
+        
+        LinearIndex(List<?> side) {
+            this.items = side;
+            this.marks = new boolean[side.size()];
+            int distinct = 0;
+            for (int i = 0; i < side.size(); i++) {
+                if (side.indexOf(side.get(i)) == i) {
+                    distinct++;
+                }
+            }
+            setDistinct(distinct);
+        }
+        
+        @Override
+        int slotOf(Object item) {
+            return items.indexOf(item);
+        }
+        
+        @Override
+        boolean isMarked(int slot) {
+            return marks[slot];
+        }
+        
+        @Override
+        void setMarked(int slot) {
+            marks[slot] = true;
+        }
+    }
+    
+    /**
+     * 基于HashMap的索引，值直接存放位置编号
+     */
+    private static final class HashIndex extends Index {
+        
+        private final Map<Object, Integer> slots;
+        private final BitSet marks = new BitSet();
+        
+        HashIndex(List<?> side) {
+            this.slots = new HashMap<>(Math.max(16, (int) (side.size() / 0.75f) + 1));
+            for (Object item : side) {
+                slots.putIfAbsent(item, slots.size());
+            }
+            setDistinct(slots.size());
+        }
+        
+        @Override
+        int slotOf(Object item) {
+            Integer slot = slots.get(item);
+            return slot == null ? -1 : slot;
+        }
+        
+        @Override
+        boolean isMarked(int slot) {
+            return marks.get(slot);
+        }
+        
+        @Override
+        void setMarked(int slot) {
+            marks.set(slot);
+        }
+    }
+    
+    /**
+     * 基于已排序List的索引，去重后用二分查找定位
+     * 每个元素只占一个数组槽位，适合已排好序的超大List（如按ID导出的对账数据）
+     */
+    private static final class SortedIndex extends Index {
+        
+        private final Object[] sorted;
+        private final int length;
+        private final BitSet marks = new BitSet();
+        
+        SortedIndex(List<?> side) {
+            Object[] items = side.toArray();
+            int length = 0;
+            for (int i = 0; i < items.length; i++) {
+                if (length == 0 || !items[length - 1].equals(items[i])) {
+                    items[length++] = items[i];
+                }
+            }
+            this.sorted = items;
+            this.length = length;
+            setDistinct(length);
+        }
+        
+        @Override
+        int slotOf(Object item) {
+            if (item == null || item.getClass() != sorted[0].getClass()) {
+                return -1;
+            }
+            int slot = Arrays.binarySearch(sorted, 0, length, item);
+            return slot < 0 ? -1 : slot;
+        }
+        
+        @Override
+        boolean isMarked(int slot) {
+            return marks.get(slot);
+        }
+        
+        @Override
+        void setMarked(int slot) {
+            marks.set(slot);
+        }
+    }
+    
+    /**
+     * 两个List的比较结果
+     * 不可变对象，保存两个List的快照和各元素是否在另一侧出现的标记，
+     * 交集、差集、并集在首次访问时生成并缓存，返回不可修改的List
+     * @param <T> 泛型类型
+     */
+    public static final class DiffResult<T> {
+        
+        private final List<T> list1;
+        private final List<T> list2;
+        private final BitSet matched1;
+        private final BitSet matched2;
+        
+        private volatile List<T> intersection;
+        private volatile List<T> difference1;
+        private volatile List<T> difference2;
+        private volatile List<T> union;
+        
+        private DiffResult(List<T> list1, List<T> list2, BitSet matched1, BitSet matched2) {
+            this.list1 = list1;
+            this.list2 = list2;
+            this.matched1 = matched1;
+            this.matched2 = matched2;
+        }
+        
+        /**
+         * 交集，与{@link ListUtils#getIntersection(List, List)}一致
+         */
+        public List<T> getIntersection() {
+            List<T> result = intersection;
+            if (result == null) {
+                result = select(list1, matched1, true);
+                intersection = result;
+            }
+            return result;
+        }
+        
+        /**
+         * list1相对于list2的差集，与getDifference(list1, list2)一致
+         */
+        public List<T> getDifference() {
+            List<T> result = difference1;
+            if (result == null) {
+                result = select(list1, matched1, false);
+                difference1 = result;
+            }
+            return result;
+        }
+        
+        /**
+         * list2相对于list1的差集，与getDifference(list2, list1)一致
+         */
+        public List<T> getReverseDifference() {
+            List<T> result = difference2;
+            if (result == null) {
+                result = select(list2, matched2, false);
+                difference2 = result;
+            }
+            return result;
+        }
+        
+        /**
+         * 并集，与{@link ListUtils#getUnion(List, List)}一致
+         * list2中已在list1出现的元素不再参与去重
+         */
+        public List<T> getUnion() {
+            List<T> result = union;
+            if (result == null) {
+                Set<T> unionSet = new LinkedHashSet<>(list1);
+                for (int i = matched2.nextClearBit(0); i < list2.size(); i = matched2.nextClearBit(i + 1)) {
+                    unionSet.add(list2.get(i));
+                }
+                result = Collections.unmodifiableList(new ArrayList<>(unionSet));
+                union = result;
+            }
+            return result;
+        }
+        
+        /**
+         * 对称差集，与{@link ListUtils#getSymmetricDifference(List, List)}一致
+         */
+        public List<T> getSymmetricDifference() {
+            List<T> symmetricDifference = new ArrayList<>(getDifference());
+            symmetricDifference.addAll(getReverseDifference());
+            return Collections.unmodifiableList(symmetricDifference);
+        }
+        
+        private static <T> List<T> select(List<T> list, BitSet matched, boolean keepMatches) {
+            List<T> result = new ArrayList<>();
+            for (int i = 0; i < list.size(); i++) {
+                if (matched.get(i) == keepMatches) {
+                    result.add(list.get(i));
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+    
+    /**
+     * 并行模式的集合运算
+     * 不可变对象，通过withPool/withThreshold派生新的配置
+     */
+    public static final class Parallel {
+        
+        /**
+         * 两个List元素总数低于该值时使用顺序实现
+         */
+        public static final int DEFAULT_THRESHOLD = 1 << 16;
+        
+        /**
+         * 单个分片的最小元素数，避免分片过细导致任务调度开销超过计算本身
+         */
+        private static final int MIN_SLICE_SIZE = 1 << 12;
+        
+        private static final Parallel DEFAULT = new Parallel(null, DEFAULT_THRESHOLD);
+        
+        private final ForkJoinPool pool;
+        private final int threshold;
+        
+        private Parallel(ForkJoinPool pool, int threshold) {
+            this.pool = pool;
+            this.threshold = threshold;
+        }
+        
+        /**
+         * 指定执行并行运算的线程池
+         * @param pool ForkJoinPool
+         * @return 新的并行模式
+         */
+        public Parallel withPool(ForkJoinPool pool) {
+            return new Parallel(Objects.requireNonNull(pool, "pool"), threshold);
+        }
+        
+        /**
+         * 指定切换到并行实现的元素总数阈值
+         * @param threshold 阈值，0表示总是并行
+         * @return 新的并行模式
+         */
+        public Parallel withThreshold(int threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+            }
+            return new Parallel(pool, threshold);
+        }
+        
+        /**
+         * 并行获取交集，结果与{@link ListUtils#getIntersectionSet(List, List)}一致
+         * @param list1 第一个List
+         * @param list2 第二个List
+         * @param <T> 泛型类型
+         * @return 交集Set
+         */
+        public <T> Set<T> getIntersectionSet(List<T> list1, List<T> list2) {
+            if (list1 == null || list2 == null) {
+                return new HashSet<>();
+            }
+            if (list1.size() + list2.size() < threshold) {
+                return ListUtils.getIntersectionSet(list1, list2);
+            }
+            return filter(list1, list2, true);
+        }
+        
+        /**
+         * 并行获取差集，结果与{@link ListUtils#getDifferenceSet(List, List)}一致
+         * @param list1 第一个List
+         * @param list2 第二个List
+         * @param <T> 泛型类型
+         * @return 差集Set
+         */
+        public <T> Set<T> getDifferenceSet(List<T> list1, List<T> list2) {
+            if (list1 == null) {
+                return new HashSet<>();
+            }
+            if (list2 == null) {
+                return new HashSet<>(list1);
+            }
+            if (list1.size() + list2.size() < threshold) {
+                return ListUtils.getDifferenceSet(list1, list2);
+            }
+            return filter(list1, list2, false);
+        }
+        
+        private <T> Set<T> filter(List<T> list1, List<T> list2, boolean keepMatches) {
+            ForkJoinPool executor = pool != null ? pool : ForkJoinPool.commonPool();
+            
+            // ConcurrentHashMap不允许null，null元素单独记录
+            List<T> source2 = randomAccess(list2);
+            Set<Object> lookup = ConcurrentHashMap.newKeySet(source2.size());
+            boolean containsNull = executor.invoke(
+                    new IndexTask(source2, 0, source2.size(), sliceSize(source2, executor), lookup));
+            
+            List<T> source1 = randomAccess(list1);
+            return executor.invoke(new FilterTask<>(source1, 0, source1.size(),
+                    sliceSize(source1, executor), lookup, containsNull, keepMatches));
+        }
+        
+        private static int sliceSize(List<?> list, ForkJoinPool executor) {
+            return Math.max(MIN_SLICE_SIZE, list.size() / (executor.getParallelism() * 4));
+        }
+        
+        private static <T> List<T> randomAccess(List<T> list) {
+            return list instanceof RandomAccess ? list : new ArrayList<>(list);
+        }
+    }
+    
+    /**
+     * 将List的一个分片并行写入共享索引，返回分片中是否含有null
+     */
+    private static final class IndexTask extends RecursiveTask<Boolean> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final List<?> source;
+        private final int from;
+        private final int to;
+        private final int sliceSize;
+        private final Set<Object> lookup;
+        
+        IndexTask(List<?> source, int from, int to, int sliceSize, Set<Object> lookup) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.sliceSize = sliceSize;
+            this.lookup = lookup;
+        }
+        
+        @Override
+        protected Boolean compute() {
+            if (to - from <= sliceSize) {
+                boolean containsNull = false;
+                for (int i = from; i < to; i++) {
+                    Object item = source.get(i);
+                    if (item == null) {
+                        containsNull = true;
+                    } else {
+                        lookup.add(item);
+                    }
+                }
+                return containsNull;
+            }
+            int middle = (from + to) >>> 1;
+            IndexTask left = new IndexTask(source, from, middle, sliceSize, lookup);
+            left.fork();
+            boolean rightContainsNull = new IndexTask(source, middle, to, sliceSize, lookup).compute();
+            return left.join() || rightContainsNull;
+        }
+    }
+    
+    /**
+     * 按索引过滤List的一个分片，每个分片构建自己的HashSet，再两两合并
+     */
+    private static final class FilterTask<T> extends RecursiveTask<Set<T>> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final List<T> source;
+        private final int from;
+        private final int to;
+        private final int sliceSize;
+        private final Set<Object> lookup;
+        private final boolean lookupContainsNull;
+        private final boolean keepMatches;
+        
+        FilterTask(List<T> source, int from, int to, int sliceSize,
+                   Set<Object> lookup, boolean lookupContainsNull, boolean keepMatches) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.sliceSize = sliceSize;
+            this.lookup = lookup;
+            this.lookupContainsNull = lookupContainsNull;
+            this.keepMatches = keepMatches;
+        }
+        
+        @Override
+        protected Set<T> compute() {
+            if (to - from <= sliceSize) {
+                Set<T> result = new HashSet<>();
+                for (int i = from; i < to; i++) {
+                    T item = source.get(i);
+                    boolean matched = item == null ? lookupContainsNull : lookup.contains(item);
+                    if (matched == keepMatches) {
+                        result.add(item);
+                    }
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            FilterTask<T> left = new FilterTask<>(source, from, middle, sliceSize,
+                    lookup, lookupContainsNull, keepMatches);
+            left.fork();
+            Set<T> right = new FilterTask<>(source, middle, to, sliceSize,
+                    lookup, lookupContainsNull, keepMatches).compute();
+            Set<T> merged = left.join();
+            if (merged.size() < right.size()) {
+                Set<T> swap = merged;
+                merged = right;
+                right = swap;
+            }
+            merged.addAll(right);
+            return merged;
+        }
+    }
+    
+    /**
+     * 开放寻址（线性探测）的long哈希集合
+     * 所有元素存放在一个long数组中，0值单独记录，不产生装箱对象和链表节点
+     */
+    private static final class LongHashSet {
+        
+        private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+        
+        private long[] keys;
+        private int mask;
+        private int size;
+        private boolean containsZero;
+        
+        LongHashSet(int expectedSize) {
+            allocate(capacityFor(expectedSize));
+        }
+        
+        static LongHashSet of(long[] values) {
+            LongHashSet set = new LongHashSet(values.length);
+            for (long value : values) {
+                set.add(value);
+            }
+            return set;
+        }
+        
+        boolean add(long value) {
+            if (value == 0) {
+                if (containsZero) {
+                    return false;
+                }
+                containsZero = true;
+                size++;
+                return true;
+            }
+            int slot = slotOf(value);
+            while (keys[slot] != 0) {
+                if (keys[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = value;
+            if (++size > (keys.length >>> 1)) {
+                rehash();
+            }
+            return true;
+        }
+        
+        boolean contains(long value) {
+            if (value == 0) {
+                return containsZero;
+            }
+            int slot = slotOf(value);
+            while (keys[slot] != 0) {
+                if (keys[slot] == value) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        private int slotOf(long value) {
+            return hash(value, mask);
+        }
+        
+        private void rehash() {
+            long[] old = keys;
+            allocate(old.length << 1);
+            for (long value : old) {
+                if (value != 0) {
+                    int slot = slotOf(value);
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = value;
+                }
+            }
+        }
+        
+        private void allocate(int capacity) {
+            this.keys = new long[capacity];
+            this.mask = capacity - 1;
+        }
+        
+        /**
+         * 负载因子0.5，容量取2的幂
+         */
+        static int capacityFor(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+            return Math.max(capacity, 8);
+        }
+        
+        static int hash(long value, int mask) {
+            long hash = value * GOLDEN_RATIO;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+    
+    /**
+     * 开放寻址的long计数表，键和计数分别存放在两个数组中
+     * 容量按预期元素个数一次分配，不扩容
+     */
+    private static final class LongCounter {
+        
+        private final long[] keys;
+        private final int[] counts;
+        private final int mask;
+        private int zeroCount;
+        
+        LongCounter(int expectedSize) {
+            int capacity = LongHashSet.capacityFor(expectedSize);
+            this.keys = new long[capacity];
+            this.counts = new int[capacity];
+            this.mask = capacity - 1;
+        }
+        
+        void increment(long value) {
+            if (value == 0) {
+                zeroCount++;
+                return;
+            }
+            int slot = LongHashSet.hash(value, mask);
+            while (keys[slot] != 0 && keys[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = value;
+            counts[slot]++;
+        }
+        
+        /**
+         * 计数减一
+         * @return 扣减前计数是否大于0
+         */
+        boolean decrement(long value) {
+            if (value == 0) {
+                return zeroCount-- > 0;
+            }
+            int slot = LongHashSet.hash(value, mask);
+            while (keys[slot] != 0) {
+                if (keys[slot] == value) {
+                    return counts[slot]-- > 0;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+    }
+}
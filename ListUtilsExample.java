@@ -28,6 +28,13 @@ public class ListUtilsExample {
         List<String> symmetricDiff = ListUtils.getSymmetricDifference(fruits1, fruits2);
         System.out.println("对称差集: " + symmetricDiff);
         
+        // 一次比较得到所有结果
+        ListUtils.DiffResult<String> diff = ListUtils.diff(fruits1, fruits2);
+        System.out.println("diff交集: " + diff.getIntersection());
+        System.out.println("diff List1 - List2: " + diff.getDifference());
+        System.out.println("diff List2 - List1: " + diff.getReverseDifference());
+        System.out.println("diff并集: " + diff.getUnion());
+        
         System.out.println();
         
         // 示例2: 整数List比较
@@ -68,6 +75,16 @@ public class ListUtilsExample {
         List<Person> peopleIntersection = ListUtils.getIntersection(people1, people2);
         System.out.println("人员交集: " + peopleIntersection);
         
+        // 按键比较：只比较姓名，不依赖equals和hashCode
+        List<Person> people3 = Arrays.asList(
+            new Person("Alice", 26),
+            new Person("Frank", 50)
+        );
+        System.out.println("按姓名求交集: " + ListUtils.getIntersection(people1, people3, Person::getName));
+        System.out.println("按姓名求差集: " + ListUtils.getDifference(people1, people3, Person::getName));
+        System.out.println("按姓名合并（保留年龄较大者）: " + ListUtils.getUnion(people1, people3, Person::getName,
+                (existing, other) -> existing.getAge() >= other.getAge() ? existing : other));
+        
         System.out.println();
         
         // 示例4: 相等性检查
@@ -105,6 +122,14 @@ public class ListUtilsExample {
             this.age = age;
         }
         
+        public String getName() {
+            return name;
+        }
+        
+        public int getAge() {
+            return age;
+        }
+        
         @Override
         public boolean equals(Object obj) {
             if (this == obj) return true;
@@ -0,0 +1,157 @@
+import java.util.Collection;
+
+/**
+ * 预先构建、可重复使用的只读查找集合
+ * 适合用一批批的小List反复与同一个超大参照集合（如黑名单）求差集或交集：
+ * 先用布隆过滤器排除绝大多数不存在的元素，只有可能存在的元素才到紧凑哈希表中精确确认
+ *
+ * 精确确认使用开放寻址的Object数组，每个元素只占一个数组槽位，不产生HashSet的链表节点；
+ * 构建完成后不再修改，可以在多个线程间共享
+ * @param <T> 元素类型
+ */
+public final class ProbeSet<T> {
+
+    /**
+     * 默认布隆过滤器误判率
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final long[] bloomBits;
+    private final long bloomBitCount;
+    private final int hashFunctions;
+
+    private final Object[] table;
+    private final int mask;
+    private final int size;
+    private final boolean containsNull;
+
+    private ProbeSet(Collection<? extends T> reference, double falsePositiveRate) {
+        int expected = Math.max(reference.size(), 1);
+        long bits = Math.max(64L, (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        this.bloomBits = new long[(int) ((bits + 63) >>> 6)];
+        this.bloomBitCount = (long) bloomBits.length << 6;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bloomBitCount / expected * Math.log(2)));
+
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        this.table = new Object[capacity];
+        this.mask = capacity - 1;
+
+        int distinct = 0;
+        boolean sawNull = false;
+        for (T item : reference) {
+            if (item == null) {
+                if (!sawNull) {
+                    sawNull = true;
+                    distinct++;
+                }
+                continue;
+            }
+            long hash = mix(item.hashCode());
+            int slot = (int) hash & mask;
+            while (table[slot] != null && !table[slot].equals(item)) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == null) {
+                table[slot] = item;
+                distinct++;
+                addToBloom(hash);
+            }
+        }
+        this.size = distinct;
+        this.containsNull = sawNull;
+    }
+
+    /**
+     * 以默认误判率构建
+     * @param reference 参照集合
+     * @param <T> 元素类型
+     * @return 查找集合
+     */
+    public static <T> ProbeSet<T> of(Collection<? extends T> reference) {
+        return of(reference, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * 以指定的布隆过滤器误判率构建
+     * 误判率只影响需要到哈希表确认的比例，不影响结果的正确性
+     * @param reference 参照集合
+     * @param falsePositiveRate 误判率，取值(0, 1)
+     * @param <T> 元素类型
+     * @return 查找集合
+     */
+    public static <T> ProbeSet<T> of(Collection<? extends T> reference, double falsePositiveRate) {
+        if (reference == null) {
+            throw new IllegalArgumentException("reference must not be null");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+        return new ProbeSet<>(reference, falsePositiveRate);
+    }
+
+    /**
+     * 布隆过滤器判断，返回false时元素一定不存在
+     * @param item 元素
+     * @return 是否可能存在
+     */
+    public boolean mightContain(Object item) {
+        if (item == null) {
+            return containsNull;
+        }
+        long hash = mix(item.hashCode());
+        long h1 = hash;
+        long h2 = mix(hash) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bloomBitCount;
+            if ((bloomBits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 精确判断元素是否存在
+     * @param item 元素
+     * @return 是否存在
+     */
+    public boolean contains(Object item) {
+        if (!mightContain(item)) {
+            return false;
+        }
+        if (item == null) {
+            return true;
+        }
+        int slot = (int) mix(item.hashCode()) & mask;
+        while (table[slot] != null) {
+            if (table[slot].equals(item)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 不同元素的个数
+     */
+    public int size() {
+        return size;
+    }
+
+    private void addToBloom(long hash) {
+        long h1 = hash;
+        long h2 = mix(hash) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bloomBitCount;
+            bloomBits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static long mix(long value) {
+        long hash = value * GOLDEN_RATIO;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 有序数据流比较工具类
+ * 对两个已排序的数据源做归并比较，逐个输出交集、左侧独有和右侧独有的元素，
+ * 内存占用与数据量无关，适合无法整体装入List的大文件（如每日结算导出文件）
+ *
+ * 结果语义与ListUtils一致：
+ * 交集和左侧独有保留左侧的重复元素；右侧与交集相同的重复元素不再输出
+ *
+ * 未排序的数据可以先用{@link ExternalSort}排序
+ */
+public class StreamingDiff {
+
+    /**
+     * 比较结果的接收者，按需覆盖关心的回调
+     * @param <T> 元素类型
+     */
+    public interface Listener<T> {
+
+        /**
+         * 两侧都存在的元素（来自左侧）
+         */
+        default void onBoth(T item) {
+        }
+
+        /**
+         * 只在左侧存在的元素
+         */
+        default void onLeftOnly(T item) {
+        }
+
+        /**
+         * 只在右侧存在的元素
+         */
+        default void onRightOnly(T item) {
+        }
+    }
+
+    /**
+     * 按自然顺序比较两个有序迭代器
+     * @param left 左侧数据（升序）
+     * @param right 右侧数据（升序）
+     * @param listener 结果接收者
+     * @param <T> 元素类型
+     */
+    public static <T extends Comparable<? super T>> void diff(Iterator<T> left, Iterator<T> right,
+                                                              Listener<? super T> listener) {
+        diff(left, right, Comparator.naturalOrder(), listener);
+    }
+
+    /**
+     * 按指定顺序比较两个有序迭代器
+     * 如果发现输入没有按比较器排序，抛出IllegalStateException
+     * @param left 左侧数据（按comparator升序）
+     * @param right 右侧数据（按comparator升序）
+     * @param comparator 排序规则
+     * @param listener 结果接收者
+     * @param <T> 元素类型
+     */
+    public static <T> void diff(Iterator<T> left, Iterator<T> right,
+                                Comparator<? super T> comparator, Listener<? super T> listener) {
+        Cursor<T> l = new Cursor<>(left, comparator, "left");
+        Cursor<T> r = new Cursor<>(right, comparator, "right");
+
+        while (l.hasCurrent() && r.hasCurrent()) {
+            int order = comparator.compare(l.current(), r.current());
+            if (order < 0) {
+                listener.onLeftOnly(l.current());
+                l.advance();
+            } else if (order > 0) {
+                listener.onRightOnly(r.current());
+                r.advance();
+            } else {
+                T key = r.current();
+                while (l.hasCurrent() && comparator.compare(l.current(), key) == 0) {
+                    listener.onBoth(l.current());
+                    l.advance();
+                }
+                while (r.hasCurrent() && comparator.compare(r.current(), key) == 0) {
+                    r.advance();
+                }
+            }
+        }
+        while (l.hasCurrent()) {
+            listener.onLeftOnly(l.current());
+            l.advance();
+        }
+        while (r.hasCurrent()) {
+            listener.onRightOnly(r.current());
+            r.advance();
+        }
+    }
+
+    /**
+     * 按自然顺序比较两个有序Stream
+     * 调用方负责关闭Stream
+     * @param left 左侧数据（升序）
+     * @param right 右侧数据（升序）
+     * @param listener 结果接收者
+     * @param <T> 元素类型
+     */
+    public static <T extends Comparable<? super T>> void diff(Stream<T> left, Stream<T> right,
+                                                              Listener<? super T> listener) {
+        diff(left.iterator(), right.iterator(), listener);
+    }
+
+    /**
+     * 按指定顺序比较两个有序Stream
+     * 调用方负责关闭Stream
+     * @param left 左侧数据（按comparator升序）
+     * @param right 右侧数据（按comparator升序）
+     * @param comparator 排序规则
+     * @param listener 结果接收者
+     * @param <T> 元素类型
+     */
+    public static <T> void diff(Stream<T> left, Stream<T> right,
+                                Comparator<? super T> comparator, Listener<? super T> listener) {
+        diff(left.iterator(), right.iterator(), comparator, listener);
+    }
+
+    /**
+     * 逐行比较两个已按字符串自然顺序排序的文本文件
+     * @param left 左侧文件
+     * @param right 右侧文件
+     * @param charset 文件编码
+     * @param listener 结果接收者
+     */
+    public static void diff(Path left, Path right, Charset charset,
+                            Listener<? super String> listener) throws IOException {
+        try (BufferedReader leftReader = Files.newBufferedReader(left, charset);
+             BufferedReader rightReader = Files.newBufferedReader(right, charset)) {
+            diff(leftReader.lines(), rightReader.lines(), listener);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 只保留当前元素的迭代器游标，同时校验输入有序
+     */
+    private static final class Cursor<T> {
+
+        private final Iterator<T> source;
+        private final Comparator<? super T> comparator;
+        private final String name;
+        private T current;
+        private boolean hasCurrent;
+
+        Cursor(Iterator<T> source, Comparator<? super T> comparator, String name) {
+            this.source = source;
+            this.comparator = comparator;
+            this.name = name;
+            advance();
+        }
+
+        boolean hasCurrent() {
+            return hasCurrent;
+        }
+
+        T current() {
+            return current;
+        }
+
+        void advance() {
+            if (!source.hasNext()) {
+                hasCurrent = false;
+                current = null;
+                return;
+            }
+            T next = source.next();
+            if (hasCurrent && comparator.compare(current, next) > 0) {
+                throw new IllegalStateException(name + " input is not sorted: "
+                        + current + " is followed by " + next);
+            }
+            current = next;
+            hasCurrent = true;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.extrigger.benchmark;
+
+/**
+ * 基准测试的元素类型，JMH生成的代码需要访问@Param枚举，因此声明为public
+ */
+public enum ElementType {
+    STRING {
+        @Override
+        Object create(long id) {
+            return "ORDER-" + id;
+        }
+    },
+    LONG {
+        @Override
+        Object create(long id) {
+            return id;
+        }
+    },
+    PERSON {
+        @Override
+        Object create(long id) {
+            return new Person("person-" + id, (int) (id % 100));
+        }
+    };
+
+    abstract Object create(long id);
+}
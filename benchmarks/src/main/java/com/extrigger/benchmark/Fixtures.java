@@ -0,0 +1,61 @@
+package com.extrigger.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 生成基准测试数据
+ * list1为0..size-1的编号，list2中overlap比例的编号与list1相同，其余为list1中不存在的编号，
+ * 两个List都用固定种子打乱顺序，保证每次运行的数据一致
+ */
+final class Fixtures {
+
+    private static final long SEED = 20160906L;
+
+    private Fixtures() {
+    }
+
+    static long[] leftIds(int size) {
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        shuffle(ids, new Random(SEED));
+        return ids;
+    }
+
+    static long[] rightIds(int size, double overlap) {
+        int shared = (int) Math.round(size * overlap);
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i < shared ? i : (long) size + i;
+        }
+        shuffle(ids, new Random(SEED + 1));
+        return ids;
+    }
+
+    static List<Object> toList(long[] ids, ElementType type) {
+        List<Object> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(type.create(id));
+        }
+        return list;
+    }
+
+    static List<Object> shuffledCopy(List<Object> list) {
+        List<Object> copy = new ArrayList<>(list);
+        Collections.shuffle(copy, new Random(SEED + 2));
+        return copy;
+    }
+
+    private static void shuffle(long[] ids, Random random) {
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+    }
+}
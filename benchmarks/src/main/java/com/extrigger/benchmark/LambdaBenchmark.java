@@ -0,0 +1,83 @@
+package com.extrigger.benchmark;
+
+import com.extrigger.Asset;
+import com.extrigger.AssetUtil;
+import com.extrigger.Factorial;
+import com.extrigger.Prime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.extrigger中lambda示例的基准测试：惰性求素数、尾递归（TailCall.invoke）和资产汇总
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LambdaBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private List<Asset> assets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(20160906L);
+        assets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Asset.AssetType type = random.nextBoolean() ? Asset.AssetType.BOND : Asset.AssetType.STOCK;
+            assets.add(new Asset(type, random.nextInt(10000)));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> primes() {
+        return Prime.primes(1, size);
+    }
+
+    /**
+     * 通过TailCall.invoke执行size次尾调用，结果溢出不影响测量
+     */
+    @Benchmark
+    public int tailCallFactorial() {
+        return Factorial.factorial(size);
+    }
+
+    @Benchmark
+    public int totalAssetValues() {
+        return AssetUtil.totalAssetValues(assets);
+    }
+
+    @Benchmark
+    public int totalBondValues() {
+        return AssetUtil.totalBondValues(assets);
+    }
+
+    @Benchmark
+    public int totalStockValues() {
+        return AssetUtil.totalStockValues(assets);
+    }
+
+    @Benchmark
+    public int totalAssetValuesWithSelector() {
+        return AssetUtil.totalAssetValues(assets, asset -> asset.getType() == Asset.AssetType.STOCK);
+    }
+}
@@ -0,0 +1,74 @@
+package com.extrigger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * ListComparison中演示的三种求交集方式的基准测试，用于验证README中的性能结论
+ * Stream API和Collection方法是O(n²)，规模只取到10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListComparisonBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int size;
+
+    @Param({"STRING", "LONG", "PERSON"})
+    private ElementType type;
+
+    @Param({"0.5"})
+    private double overlap;
+
+    private List<Object> list1;
+    private List<Object> list2;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list1 = Fixtures.toList(Fixtures.leftIds(size), type);
+        list2 = Fixtures.toList(Fixtures.rightIds(size, overlap), type);
+    }
+
+    @Benchmark
+    public List<Object> streamApi() {
+        return list1.stream()
+                .filter(list2::contains)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Object> collectionRetainAll() {
+        List<Object> intersection = new ArrayList<>(list1);
+        intersection.retainAll(list2);
+        return intersection;
+    }
+
+    @Benchmark
+    public Set<Object> hashSetRetainAll() {
+        Set<Object> set1 = new HashSet<>(list1);
+        Set<Object> set2 = new HashSet<>(list2);
+        set1.retainAll(set2);
+        return set1;
+    }
+}
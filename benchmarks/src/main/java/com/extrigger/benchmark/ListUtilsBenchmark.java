@@ -0,0 +1,126 @@
+package com.extrigger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ListUtils各方法的基准测试
+ * 覆盖不同规模、元素类型和两个List的重合比例，规模较大的组合可以用-p参数单独运行，例如:
+ * java -jar target/benchmarks.jar ListUtilsBenchmark -p size=1000000 -p type=LONG
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ListUtilsBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"STRING", "LONG", "PERSON"})
+    private ElementType type;
+
+    @Param({"0.0", "0.5", "1.0"})
+    private double overlap;
+
+    private List<Object> list1;
+    private List<Object> list2;
+    private List<Object> list1Shuffled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list1 = Fixtures.toList(Fixtures.leftIds(size), type);
+        list2 = Fixtures.toList(Fixtures.rightIds(size, overlap), type);
+        list1Shuffled = Fixtures.shuffledCopy(list1);
+    }
+
+    @Benchmark
+    public List<?> getIntersection() throws Throwable {
+        return (List<?>) ListUtilsHandles.GET_INTERSECTION.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public List<?> getDifference() throws Throwable {
+        return (List<?>) ListUtilsHandles.GET_DIFFERENCE.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public List<?> getUnion() throws Throwable {
+        return (List<?>) ListUtilsHandles.GET_UNION.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public List<?> getSymmetricDifference() throws Throwable {
+        return (List<?>) ListUtilsHandles.GET_SYMMETRIC_DIFFERENCE.invokeExact(list1, list2);
+    }
+
+    /**
+     * 分别调用四个方法得到交集、两个方向的差集和并集
+     */
+    @Benchmark
+    public void separateCalls(Blackhole blackhole) throws Throwable {
+        blackhole.consume((List<?>) ListUtilsHandles.GET_INTERSECTION.invokeExact(list1, list2));
+        blackhole.consume((List<?>) ListUtilsHandles.GET_DIFFERENCE.invokeExact(list1, list2));
+        blackhole.consume((List<?>) ListUtilsHandles.GET_DIFFERENCE.invokeExact(list2, list1));
+        blackhole.consume((List<?>) ListUtilsHandles.GET_UNION.invokeExact(list1, list2));
+    }
+
+    /**
+     * 通过diff一次得到同样的四个结果
+     */
+    @Benchmark
+    public void diffAllViews(Blackhole blackhole) throws Throwable {
+        Object result = ListUtilsHandles.DIFF.invokeExact(list1, list2);
+        blackhole.consume((List<?>) ListUtilsHandles.DIFF_INTERSECTION.invokeExact(result));
+        blackhole.consume((List<?>) ListUtilsHandles.DIFF_DIFFERENCE.invokeExact(result));
+        blackhole.consume((List<?>) ListUtilsHandles.DIFF_REVERSE_DIFFERENCE.invokeExact(result));
+        blackhole.consume((List<?>) ListUtilsHandles.DIFF_UNION.invokeExact(result));
+    }
+
+    @Benchmark
+    public Set<?> getIntersectionSet() throws Throwable {
+        return (Set<?>) ListUtilsHandles.GET_INTERSECTION_SET.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public Set<?> getDifferenceSet() throws Throwable {
+        return (Set<?>) ListUtilsHandles.GET_DIFFERENCE_SET.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public Set<?> parallelIntersectionSet() throws Throwable {
+        return (Set<?>) ListUtilsHandles.PARALLEL_INTERSECTION_SET.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public Set<?> parallelDifferenceSet() throws Throwable {
+        return (Set<?>) ListUtilsHandles.PARALLEL_DIFFERENCE_SET.invokeExact(list1, list2);
+    }
+
+    @Benchmark
+    public boolean isEqualIgnoreOrder() throws Throwable {
+        return (boolean) ListUtilsHandles.IS_EQUAL_IGNORE_ORDER.invokeExact(list1, list1Shuffled);
+    }
+
+    @Benchmark
+    public boolean isEqualWithOrder() throws Throwable {
+        return (boolean) ListUtilsHandles.IS_EQUAL_WITH_ORDER.invokeExact(list1, list1Shuffled);
+    }
+}
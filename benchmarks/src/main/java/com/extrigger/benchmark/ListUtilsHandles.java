@@ -0,0 +1,113 @@
+package com.extrigger.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ListUtils位于默认包，具名包中的基准测试无法直接引用，
+ * 这里通过static final的MethodHandle调用，JIT会将其内联为直接调用
+ */
+final class ListUtilsHandles {
+
+    private static final MethodType LIST_TO_LIST = MethodType.methodType(List.class, List.class, List.class);
+    private static final MethodType LIST_TO_SET = MethodType.methodType(Set.class, List.class, List.class);
+    private static final MethodType LIST_TO_BOOLEAN = MethodType.methodType(boolean.class, List.class, List.class);
+    private static final MethodType LONGS_TO_LONGS = MethodType.methodType(long[].class, long[].class, long[].class);
+    private static final MethodType LONGS_TO_BOOLEAN = MethodType.methodType(boolean.class, long[].class, long[].class);
+
+    static final MethodHandle GET_INTERSECTION = findStatic("getIntersection", LIST_TO_LIST);
+    static final MethodHandle GET_DIFFERENCE = findStatic("getDifference", LIST_TO_LIST);
+    static final MethodHandle GET_UNION = findStatic("getUnion", LIST_TO_LIST);
+    static final MethodHandle GET_SYMMETRIC_DIFFERENCE = findStatic("getSymmetricDifference", LIST_TO_LIST);
+    static final MethodHandle GET_INTERSECTION_SET = findStatic("getIntersectionSet", LIST_TO_SET);
+    static final MethodHandle GET_DIFFERENCE_SET = findStatic("getDifferenceSet", LIST_TO_SET);
+    static final MethodHandle IS_EQUAL_IGNORE_ORDER = findStatic("isEqualIgnoreOrder", LIST_TO_BOOLEAN);
+    static final MethodHandle IS_EQUAL_WITH_ORDER = findStatic("isEqualWithOrder", LIST_TO_BOOLEAN);
+
+    static final MethodHandle PARALLEL_INTERSECTION_SET = findParallel("getIntersectionSet", LIST_TO_SET);
+    static final MethodHandle PARALLEL_DIFFERENCE_SET = findParallel("getDifferenceSet", LIST_TO_SET);
+
+    static final MethodHandle DIFF = findStatic("diff", MethodType.methodType(findClass("ListUtils$DiffResult"),
+            List.class, List.class)).asType(MethodType.methodType(Object.class, List.class, List.class));
+    static final MethodHandle DIFF_INTERSECTION = findDiffView("getIntersection");
+    static final MethodHandle DIFF_DIFFERENCE = findDiffView("getDifference");
+    static final MethodHandle DIFF_REVERSE_DIFFERENCE = findDiffView("getReverseDifference");
+    static final MethodHandle DIFF_UNION = findDiffView("getUnion");
+
+    static final MethodHandle PROBE_SET_OF = findProbeSetFactory();
+    static final MethodHandle GET_DIFFERENCE_PROBE = findStatic("getDifference",
+            MethodType.methodType(List.class, List.class, findClass("ProbeSet")))
+            .asType(MethodType.methodType(List.class, List.class, Object.class));
+
+    static final MethodHandle GET_INTERSECTION_LONGS = findStatic("getIntersection", LONGS_TO_LONGS);
+    static final MethodHandle GET_DIFFERENCE_LONGS = findStatic("getDifference", LONGS_TO_LONGS);
+    static final MethodHandle GET_UNION_LONGS = findStatic("getUnion", LONGS_TO_LONGS);
+    static final MethodHandle GET_SYMMETRIC_DIFFERENCE_LONGS = findStatic("getSymmetricDifference", LONGS_TO_LONGS);
+    static final MethodHandle IS_EQUAL_IGNORE_ORDER_LONGS = findStatic("isEqualIgnoreOrder", LONGS_TO_BOOLEAN);
+
+    private ListUtilsHandles() {
+    }
+
+    private static MethodHandle findStatic(String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("ListUtils"), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * DiffResult的结果视图，接收者类型擦除为Object
+     */
+    private static MethodHandle findDiffView(String name) {
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(findClass("ListUtils$DiffResult"), name, MethodType.methodType(List.class))
+                    .asType(MethodType.methodType(List.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * ProbeSet.of(Collection)，返回值擦除为Object
+     */
+    private static MethodHandle findProbeSetFactory() {
+        try {
+            Class<?> probeSet = findClass("ProbeSet");
+            return MethodHandles.publicLookup()
+                    .findStatic(probeSet, "of", MethodType.methodType(probeSet, Collection.class))
+                    .asType(MethodType.methodType(Object.class, Collection.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static Class<?> findClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 绑定到ListUtils.parallel()返回的默认并行模式
+     */
+    private static MethodHandle findParallel(String name, MethodType type) {
+        try {
+            Class<?> listUtils = Class.forName("ListUtils");
+            Class<?> parallel = Class.forName("ListUtils$Parallel");
+            Object defaults = MethodHandles.publicLookup()
+                    .findStatic(listUtils, "parallel", MethodType.methodType(parallel))
+                    .invoke();
+            return MethodHandles.publicLookup().findVirtual(parallel, name, type).bindTo(defaults);
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.extrigger.benchmark;
+
+import com.example.wechatpay.util.OutTradeNoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商户订单号生成：原来的时间戳 + UUID片段（每次都经过共享的SecureRandom）与OutTradeNoGenerator对比
+ * 以8个线程运行，模拟多个请求线程同时下单
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class OutTradeNoBenchmark {
+
+    private final OutTradeNoGenerator generator = new OutTradeNoGenerator(1);
+
+    @Benchmark
+    public String uuid() {
+        return System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Benchmark
+    public String generator() {
+        return generator.next();
+    }
+
+    @Benchmark
+    public String generatorWithPrefix() {
+        return generator.next("R");
+    }
+}
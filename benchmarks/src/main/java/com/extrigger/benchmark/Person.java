@@ -0,0 +1,35 @@
+package com.extrigger.benchmark;
+
+import java.util.Objects;
+
+/**
+ * 基准测试用的自定义对象，与ListUtilsExample中的Person一样按name和age判断相等
+ */
+final class Person {
+
+    private final String name;
+    private final int age;
+
+    Person(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Person person = (Person) obj;
+        return age == person.age && Objects.equals(name, person.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, age);
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + age + ")";
+    }
+}
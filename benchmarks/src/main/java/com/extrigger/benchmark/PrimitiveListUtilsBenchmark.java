@@ -0,0 +1,73 @@
+package com.extrigger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ListUtils基本类型数组重载的基准测试，与ListUtilsBenchmark中type=LONG的结果对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PrimitiveListUtilsBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"0.0", "0.5", "1.0"})
+    private double overlap;
+
+    private long[] array1;
+    private long[] array2;
+    private long[] array1Reversed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array1 = Fixtures.leftIds(size);
+        array2 = Fixtures.rightIds(size, overlap);
+        array1Reversed = new long[size];
+        for (int i = 0; i < size; i++) {
+            array1Reversed[i] = array1[size - 1 - i];
+        }
+    }
+
+    @Benchmark
+    public long[] getIntersection() throws Throwable {
+        return (long[]) ListUtilsHandles.GET_INTERSECTION_LONGS.invokeExact(array1, array2);
+    }
+
+    @Benchmark
+    public long[] getDifference() throws Throwable {
+        return (long[]) ListUtilsHandles.GET_DIFFERENCE_LONGS.invokeExact(array1, array2);
+    }
+
+    @Benchmark
+    public long[] getUnion() throws Throwable {
+        return (long[]) ListUtilsHandles.GET_UNION_LONGS.invokeExact(array1, array2);
+    }
+
+    @Benchmark
+    public long[] getSymmetricDifference() throws Throwable {
+        return (long[]) ListUtilsHandles.GET_SYMMETRIC_DIFFERENCE_LONGS.invokeExact(array1, array2);
+    }
+
+    @Benchmark
+    public boolean isEqualIgnoreOrder() throws Throwable {
+        return (boolean) ListUtilsHandles.IS_EQUAL_IGNORE_ORDER_LONGS.invokeExact(array1, array1Reversed);
+    }
+}
@@ -0,0 +1,66 @@
+package com.extrigger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 小批量数据与超大参照集合求差集：预先构建的ProbeSet对比每次传入参照List
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProbeSetBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    private int referenceSize;
+
+    @Param({"1000"})
+    private int batchSize;
+
+    @Param({"STRING", "LONG"})
+    private ElementType type;
+
+    private List<Object> reference;
+    private Object probeSet;
+    private List<Object> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        reference = Fixtures.toList(Fixtures.leftIds(referenceSize), type);
+        probeSet = ListUtilsHandles.PROBE_SET_OF.invokeExact((Collection<?>) reference);
+        // 批次中1%命中参照集合
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long id = i % 100 == 0 ? i : (long) referenceSize + i;
+            batch.add(type.create(id));
+        }
+    }
+
+    @Benchmark
+    public List<?> differenceAgainstProbeSet() throws Throwable {
+        return (List<?>) ListUtilsHandles.GET_DIFFERENCE_PROBE.invokeExact(batch, probeSet);
+    }
+
+    @Benchmark
+    public List<?> differenceAgainstList() throws Throwable {
+        return (List<?>) ListUtilsHandles.GET_DIFFERENCE.invokeExact(batch, reference);
+    }
+}
@@ -0,0 +1,117 @@
+package com.extrigger.benchmark;
+
+import com.example.wechatpay.util.SignatureUtil;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SignatureUtil的加解密开销：每次调用getInstance（fresh*）与按线程复用引擎对象（SignatureUtil）对比
+ * 以4个线程运行，模拟多个请求线程同时签名和解密回调通知
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SignatureUtilBenchmark {
+
+    private static final String API_V3_KEY = "0123456789abcdefghijklmnopqrstuv";
+    private static final String NONCE = "a1b2c3d4e5f6";
+    private static final String ASSOCIATED_DATA = "transaction";
+
+    private PrivateKey privateKey;
+    private String message;
+    private String ciphertext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        privateKey = keyPair.getPrivate();
+        message = SignatureUtil.buildSignMessage("POST", "/v3/pay/transactions/jsapi",
+                1700000000L, SignatureUtil.generateNonceStr(), "{\"appid\":\"wx0000000000000000\",\"amount\":{\"total\":100}}");
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(API_V3_KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                new GCMParameterSpec(128, NONCE.getBytes(StandardCharsets.UTF_8)));
+        cipher.updateAAD(ASSOCIATED_DATA.getBytes(StandardCharsets.UTF_8));
+        byte[] plain = "{\"out_trade_no\":\"1700000000000abcdefgh\",\"trade_state\":\"SUCCESS\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        ciphertext = Base64.encodeBase64String(cipher.doFinal(plain));
+    }
+
+    @Benchmark
+    public String sign() throws Exception {
+        return SignatureUtil.sign(message, privateKey);
+    }
+
+    @Benchmark
+    public String freshSign() throws Exception {
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(privateKey);
+        signature.update(message.getBytes(StandardCharsets.UTF_8));
+        return Base64.encodeBase64String(signature.sign());
+    }
+
+    @Benchmark
+    public String decryptAesGcm() throws Exception {
+        return SignatureUtil.decryptAesGcm(ASSOCIATED_DATA, NONCE, ciphertext, API_V3_KEY);
+    }
+
+    @Benchmark
+    public String freshDecryptAesGcm() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        SecretKeySpec key = new SecretKeySpec(API_V3_KEY.getBytes(StandardCharsets.UTF_8), "AES");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, NONCE.getBytes(StandardCharsets.UTF_8)));
+        cipher.updateAAD(ASSOCIATED_DATA.getBytes(StandardCharsets.UTF_8));
+        return new String(cipher.doFinal(Base64.decodeBase64(ciphertext)), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String hmacSha256() throws Exception {
+        return SignatureUtil.hmacSha256(message, API_V3_KEY);
+    }
+
+    @Benchmark
+    public byte[] freshHmacSha256() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(API_V3_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return mac.doFinal(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String md5() throws Exception {
+        return SignatureUtil.md5(message);
+    }
+
+    @Benchmark
+    public byte[] freshMd5() throws Exception {
+        return MessageDigest.getInstance("MD5").digest(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -68,6 +68,11 @@ public class WeChatPayConfig {
      */
     private boolean sandboxEnabled = false;
     
+    /**
+     * 微信支付API地址，测试时可以指向本地模拟网关
+     */
+    private String apiBaseUrl = "https://api.mch.weixin.qq.com";
+    
     /**
      * 连接超时时间（毫秒）
      */
@@ -77,4 +82,219 @@ public class WeChatPayConfig {
      * 读取超时时间（毫秒）
      */
     private int readTimeout = 10000;
-}
\ No newline at end of file
+    
+    /**
+     * 从连接池获取连接的超时时间（毫秒）
+     */
+    private int connectionRequestTimeout = 1000;
+    
+    /**
+     * 连接池最大连接数
+     */
+    private int maxConnTotal = 200;
+    
+    /**
+     * 每个路由（目标主机）的最大连接数
+     */
+    private int maxConnPerRoute = 100;
+    
+    /**
+     * 服务端未返回Keep-Alive头时，连接保持存活的时间（毫秒）
+     */
+    private long keepAliveTime = 60000;
+    
+    /**
+     * 空闲连接的回收时间（毫秒）
+     */
+    private long idleConnectionTimeout = 30000;
+    
+    /**
+     * 连接空闲超过该时间后，复用前先检查是否仍然可用（毫秒）
+     */
+    private int validateAfterInactivity = 2000;
+    
+    /**
+     * 异步HTTP客户端的IO线程数
+     */
+    private int asyncIoThreads = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * 异步请求的最大未完成数，超出时直接拒绝
+     */
+    private int asyncMaxInFlight = 2000;
+    
+    /**
+     * 批量生成支付参数时的签名线程数
+     */
+    private int signThreads = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * 回调通知去重缓存在内存中保留的最大记录数
+     */
+    private int notifyDedupMaxSize = 100000;
+    
+    /**
+     * 回调通知去重记录的有效期（毫秒），应覆盖微信支付约24小时的重试周期
+     */
+    private long notifyDedupTtl = 90000000;
+    
+    /**
+     * 是否先应答回调再异步处理，关闭时在请求线程内同步处理
+     */
+    private boolean notifyQueueEnabled = true;
+    
+    /**
+     * 回调处理队列容量，队满时应答失败让微信支付稍后重试
+     */
+    private int notifyQueueCapacity = 10000;
+    
+    /**
+     * 回调处理工作线程数
+     */
+    private int notifyWorkerThreads = 4;
+    
+    /**
+     * 每批最多处理的回调数
+     */
+    private int notifyBatchSize = 50;
+    
+    /**
+     * 队列中每条回调最多处理次数（包括首次），用尽后写入死信
+     */
+    private int notifyMaxAttempts = 8;
+    
+    /**
+     * 回调处理失败后首次重新处理前的等待时间（毫秒），之后每次翻倍
+     */
+    private long notifyRetryBackoff = 1000;
+    
+    /**
+     * 回调预写日志目录，配置后已应答的回调在进程重启后不会丢失
+     */
+    private String notifyWalDir;
+    
+    /**
+     * 是否缓存按商户订单号查询订单的结果
+     */
+    private boolean orderQueryCacheEnabled = true;
+    
+    /**
+     * 未支付、支付中等中间状态的缓存时间（毫秒）
+     */
+    private long orderQueryCacheTtl = 2000;
+    
+    /**
+     * 支付成功、已关闭等终态的缓存时间（毫秒）
+     */
+    private long orderQueryTerminalCacheTtl = 600000;
+    
+    /**
+     * 最多缓存的订单数
+     */
+    private int orderQueryCacheMaxSize = 100000;
+    
+    /**
+     * 订单对账时最多同时进行的查询数
+     */
+    private int reconcileConcurrency = 32;
+    
+    /**
+     * 订单对账时每秒最多发起的查询数（包括重试）
+     */
+    private double reconcileRatePerSecond = 200;
+    
+    /**
+     * 订单对账时每个订单最多查询次数
+     */
+    private int reconcileMaxAttempts = 3;
+    
+    /**
+     * 订单对账首次重试的退避上限（毫秒），之后每次翻倍
+     */
+    private long reconcileBackoff = 200;
+    
+    /**
+     * 订单对账重试的最大退避时间（毫秒）
+     */
+    private long reconcileMaxBackoff = 5000;
+    
+    /**
+     * 生成商户订单号使用的节点号（0-9999），部署多个实例时每个实例必须不同
+     */
+    private int nodeId = 0;
+    
+    /**
+     * 是否验证回调通知的签名
+     */
+    private boolean notifySignatureVerify = true;
+    
+    /**
+     * 是否通过下载平台证书接口自动更新平台证书，需要配置apiV3Key
+     */
+    private boolean platformCertAutoUpdate = true;
+    
+    /**
+     * 平台证书刷新间隔（毫秒）
+     */
+    private long platformCertRefreshInterval = 43200000;
+    
+    /**
+     * 回调时间戳与本机时间的最大允许偏差（毫秒）
+     */
+    private long notifyMaxClockSkew = 300000;
+    
+    /**
+     * 回调请求体的最大字节数，超过时不再读取，直接应答413
+     */
+    private int notifyMaxBodySize = 16384;
+    
+    /**
+     * 下单时每个请求最多发送次数（包括首次），只在网络异常、超时时重试
+     */
+    private int payMaxAttempts = 2;
+    
+    /**
+     * 下单重试前的等待时间（毫秒），之后每次翻倍
+     */
+    private long payRetryBackoff = 100;
+    
+    /**
+     * 是否对每个微信支付接口启用熔断和自适应并发限制
+     */
+    private boolean resilienceEnabled = true;
+    
+    /**
+     * 接口连续失败（网络异常、超时、5xx、429）多少次后熔断
+     */
+    private int circuitFailureThreshold = 10;
+    
+    /**
+     * 接口熔断后多久放行探测请求（毫秒）
+     */
+    private long circuitOpenTime = 10000;
+    
+    /**
+     * 每个接口的初始并发上限
+     */
+    private int concurrencyInitialLimit = 50;
+    
+    /**
+     * 每个接口的最小并发上限
+     */
+    private int concurrencyMinLimit = 2;
+    
+    /**
+     * 每个接口的最大并发上限，不应超过每路由最大连接数
+     */
+    private int concurrencyMaxLimit = 100;
+    
+    /**
+     * 请求耗时超过多久（毫秒）视为网关过载，收缩并发上限
+     */
+    private long concurrencyLatencyThreshold = 3000;
+    
+    /**
+     * 网关过载时并发上限的乘数
+     */
+    private double concurrencyBackoffRatio = 0.9;
+}
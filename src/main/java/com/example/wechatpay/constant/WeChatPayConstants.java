@@ -66,6 +66,11 @@ public class WeChatPayConstants {
      */
     public static final String FUND_FLOW_BILL_URL = "/bill/fundflowbill";
     
+    /**
+     * 下载平台证书接口
+     */
+    public static final String CERTIFICATES_URL = "/certificates";
+    
     /**
      * 支付成功返回码
      */
@@ -109,6 +114,16 @@ public class WeChatPayConstants {
         public static final String ABNORMAL = "ABNORMAL";         // 退款异常
     }
     
+    /**
+     * 回调通知和应答的签名请求头
+     */
+    public static class Header {
+        public static final String SERIAL = "Wechatpay-Serial";         // 平台证书序列号
+        public static final String SIGNATURE = "Wechatpay-Signature";   // 签名
+        public static final String TIMESTAMP = "Wechatpay-Timestamp";   // 时间戳
+        public static final String NONCE = "Wechatpay-Nonce";           // 随机串
+    }
+    
     /**
      * 签名类型
      */
@@ -1,20 +1,24 @@
 package com.example.wechatpay.controller;
 
+import com.example.wechatpay.config.WeChatPayConfig;
+import com.example.wechatpay.constant.WeChatPayConstants;
 import com.example.wechatpay.model.request.RefundRequest;
 import com.example.wechatpay.model.request.UnifiedOrderRequest;
-import com.example.wechatpay.model.response.PaymentNotifyResponse;
 import com.example.wechatpay.model.response.RefundResponse;
 import com.example.wechatpay.service.WeChatPayService;
+import com.example.wechatpay.util.PooledBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.BufferedReader;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * 微信支付控制器
@@ -29,6 +33,9 @@ public class WeChatPayController {
     @Autowired
     private WeChatPayService weChatPayService;
     
+    @Autowired
+    private WeChatPayConfig config;
+    
     /**
      * 创建JSAPI支付订单（公众号/小程序支付）
      * 
@@ -389,48 +396,49 @@ public class WeChatPayController {
      * 微信支付成功后会调用此接口
      * 
      * @param request HTTP请求
+     * @param servletResponse HTTP应答，未能接收时设置非2xx状态码，让微信支付重试
      * @return 响应
      */
     @PostMapping("/notify/payment")
-    public Map<String, String> paymentNotify(HttpServletRequest request) {
+    public Map<String, String> paymentNotify(HttpServletRequest request, HttpServletResponse servletResponse) {
         Map<String, String> response = new HashMap<>();
         
         try {
             // 读取请求体
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader reader = request.getReader()) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
-                }
-            }
-            String notifyData = sb.toString();
+            PooledBuffer body = readBody(request);
             
-            logger.info("收到支付通知: {}", notifyData);
+            logger.info("收到支付通知，长度: {}", body.length());
+            if (logger.isDebugEnabled()) {
+                logger.debug("支付通知内容: {}", body.toString(StandardCharsets.UTF_8));
+            }
             
-            // 处理支付通知
-            PaymentNotifyResponse.DecryptedResource resource = 
-                    weChatPayService.handlePaymentNotify(notifyData);
+            // 验签通过后才接收，验签使用缓存的平台证书公钥
+            if (!verifySignature(request, body)) {
+                // 证书轮换时新证书可能仍在后台下载，应答401让微信支付稍后重试
+                servletResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.put("code", "FAIL");
+                response.put("message", "签名错误");
+                return response;
+            }
             
-            if (resource != null) {
-                // 处理业务逻辑
-                String outTradeNo = resource.getOutTradeNo();
-                String tradeState = resource.getTradeState();
-                
-                if ("SUCCESS".equals(tradeState)) {
-                    // 支付成功，更新订单状态
-                    logger.info("订单支付成功: {}", outTradeNo);
-                    // TODO: 更新订单状态，发货等业务逻辑
-                }
-                
+            // 入队后立即应答，解密和业务处理由工作线程完成
+            if (weChatPayService.acceptPaymentNotify(body.array(), 0, body.length())) {
                 response.put("code", "SUCCESS");
                 response.put("message", "成功");
             } else {
+                // 微信支付只在非2xx应答时重试，处理失败必须返回5xx
+                servletResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
                 response.put("code", "FAIL");
                 response.put("message", "处理失败");
             }
+        } catch (PooledBuffer.TooLargeException e) {
+            logger.warn("支付通知请求体过大，Content-Length: {}", request.getContentLength());
+            servletResponse.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            response.put("code", "FAIL");
+            response.put("message", "请求体过大");
         } catch (Exception e) {
             logger.error("处理支付通知异常", e);
+            servletResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.put("code", "FAIL");
             response.put("message", "系统异常");
         }
@@ -443,31 +451,48 @@ public class WeChatPayController {
      * 退款成功后会调用此接口
      * 
      * @param request HTTP请求
+     * @param servletResponse HTTP应答，未能接收时设置非2xx状态码，让微信支付重试
      * @return 响应
      */
     @PostMapping("/notify/refund")
-    public Map<String, String> refundNotify(HttpServletRequest request) {
+    public Map<String, String> refundNotify(HttpServletRequest request, HttpServletResponse servletResponse) {
         Map<String, String> response = new HashMap<>();
         
         try {
             // 读取请求体
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader reader = request.getReader()) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
-                }
-            }
-            String notifyData = sb.toString();
+            PooledBuffer body = readBody(request);
             
-            logger.info("收到退款通知: {}", notifyData);
+            logger.info("收到退款通知，长度: {}", body.length());
+            if (logger.isDebugEnabled()) {
+                logger.debug("退款通知内容: {}", body.toString(StandardCharsets.UTF_8));
+            }
             
-            // TODO: 处理退款通知，解密数据，更新退款状态
+            // 验签通过后才接收，验签使用缓存的平台证书公钥
+            if (!verifySignature(request, body)) {
+                // 证书轮换时新证书可能仍在后台下载，应答401让微信支付稍后重试
+                servletResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.put("code", "FAIL");
+                response.put("message", "签名错误");
+                return response;
+            }
             
-            response.put("code", "SUCCESS");
-            response.put("message", "成功");
+            if (weChatPayService.acceptRefundNotify(body.array(), 0, body.length())) {
+                response.put("code", "SUCCESS");
+                response.put("message", "成功");
+            } else {
+                // 微信支付只在非2xx应答时重试，处理失败必须返回5xx
+                servletResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.put("code", "FAIL");
+                response.put("message", "处理失败");
+            }
+        } catch (PooledBuffer.TooLargeException e) {
+            logger.warn("退款通知请求体过大，Content-Length: {}", request.getContentLength());
+            servletResponse.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            response.put("code", "FAIL");
+            response.put("message", "请求体过大");
         } catch (Exception e) {
             logger.error("处理退款通知异常", e);
+            servletResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.put("code", "FAIL");
             response.put("message", "系统异常");
         }
@@ -475,14 +500,84 @@ public class WeChatPayController {
         return response;
     }
     
+    /**
+     * 回调处理队列的运行指标
+     * 
+     * @return 各队列的入队、拒绝、处理、失败数和队列深度
+     */
+    @GetMapping("/notify/stats")
+    public Map<String, Map<String, Object>> notifyStats() {
+        return weChatPayService.getNotifyQueueStats();
+    }
+    
+    /**
+     * 下单通道的运行指标
+     * 
+     * @return 各通道的请求、成功、失败、重试、拒绝数和平均耗时
+     */
+    @GetMapping("/pay/stats")
+    public Map<String, Map<String, Object>> payStats() {
+        return weChatPayService.getPayChannelStats();
+    }
+    
+    /**
+     * 微信支付API调用指标，同样的数据也以MBean形式注册在JMX的com.example.wechatpay域下
+     * 
+     * @return 各接口的计数和签名、网络、解析阶段的耗时分位数（毫秒）
+     */
+    @GetMapping("/metrics")
+    public Map<String, Map<String, Object>> metrics() {
+        return weChatPayService.getApiMetrics();
+    }
+    
+    /**
+     * 微信支付接口的熔断和并发限制状态
+     * 
+     * @return 各接口的熔断器状态、当前并发上限、进行中的请求数、熔断拒绝数和并发超限拒绝数
+     */
+    @GetMapping("/resilience/stats")
+    public Map<String, Map<String, Object>> resilienceStats() {
+        return weChatPayService.getResilienceStats();
+    }
+    
+    /**
+     * 按回调请求头中的平台证书序列号、时间戳、随机串和签名验证回调
+     * 
+     * @param request HTTP请求
+     * @param body 请求体
+     * @return 是否验签通过
+     */
+    private boolean verifySignature(HttpServletRequest request, PooledBuffer body) {
+        return weChatPayService.verifyNotifySignature(
+                request.getHeader(WeChatPayConstants.Header.SERIAL),
+                request.getHeader(WeChatPayConstants.Header.TIMESTAMP),
+                request.getHeader(WeChatPayConstants.Header.NONCE),
+                request.getHeader(WeChatPayConstants.Header.SIGNATURE),
+                body.array(), 0, body.length());
+    }
+    
+    /**
+     * 将回调请求体一次性读入当前线程复用的缓冲区
+     * 读取发生在验签之前，Content-Length由调用方决定，因此总长度限制在notifyMaxBodySize以内
+     * 
+     * @param request HTTP请求
+     * @return 请求体，在当前线程处理下一个回调前有效
+     * @throws PooledBuffer.TooLargeException 请求体超过最大长度
+     */
+    private PooledBuffer readBody(HttpServletRequest request) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            return PooledBuffer.body().readFrom(in, request.getContentLength(), config.getNotifyMaxBodySize());
+        }
+    }
+    
     /**
      * 生成商户订单号
      * 
      * @return 商户订单号
      */
     private String generateOutTradeNo() {
-        // 格式：时间戳 + 随机数
-        return System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8);
+        // 格式：时间戳 + 节点号 + 毫秒内序号
+        return weChatPayService.generateOutTradeNo();
     }
     
     /**
@@ -491,7 +586,7 @@ public class WeChatPayController {
      * @return 商户退款单号
      */
     private String generateOutRefundNo() {
-        // 格式：R + 时间戳 + 随机数
-        return "R" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8);
+        // 格式：R + 时间戳 + 节点号 + 毫秒内序号
+        return weChatPayService.generateOutRefundNo();
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.example.wechatpay.example;
+
+import com.example.wechatpay.service.OrderReconciler;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * 订单对账示例
+ * 使用本地模拟网关演示OrderReconciler的并发、限流和重试，不需要真实的微信支付商户号：
+ * 模拟网关按固定延迟响应，一部分请求临时失败，订单随机处于未支付、已支付或已关闭状态
+ */
+public class OrderReconcileExample {
+    
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        StubGateway gateway = new StubGateway(20, 0.05);
+        
+        // 最多64个并发查询，每秒最多2000次，每个订单最多查询3次
+        OrderReconciler reconciler = new OrderReconciler(gateway::query, 64, 2000, 3, 50, 1000);
+        Iterator<String> pending = IntStream.range(0, orders).mapToObj(i -> "ORDER" + i).iterator();
+        
+        AtomicLong paid = new AtomicLong();
+        OrderReconciler.Report report = reconciler.run(pending, new OrderReconciler.Listener() {
+            @Override
+            public void onStateChanged(String outTradeNo, String tradeState, Map<String, Object> order) {
+                if ("SUCCESS".equals(tradeState)) {
+                    paid.incrementAndGet();
+                }
+            }
+            
+            @Override
+            public void onFailed(String outTradeNo, Throwable cause, Map<String, Object> response) {
+                System.out.println("对账失败: " + outTradeNo);
+            }
+        });
+        
+        System.out.println("对账结果: " + report);
+        System.out.println("已支付订单: " + paid.get() + ", 模拟网关收到请求: " + gateway.requests.get());
+        gateway.shutdown();
+    }
+    
+    /**
+     * 本地模拟网关
+     */
+    static class StubGateway {
+        
+        private static final String[] STATES = {"NOTPAY", "SUCCESS", "CLOSED", "USERPAYING"};
+        
+        private final long latencyMillis;
+        private final double failureRate;
+        private final AtomicLong requests = new AtomicLong();
+        private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(2);
+        
+        StubGateway(long latencyMillis, double failureRate) {
+            this.latencyMillis = latencyMillis;
+            this.failureRate = failureRate;
+        }
+        
+        CompletableFuture<Map<String, Object>> query(String outTradeNo) {
+            requests.incrementAndGet();
+            CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+            boolean fail = ThreadLocalRandom.current().nextDouble() < failureRate;
+            timer.schedule(() -> {
+                if (fail) {
+                    // 与WeChatPayService一致，查询异常时结果为null
+                    future.complete(null);
+                    return;
+                }
+                Map<String, Object> order = new HashMap<>();
+                order.put("out_trade_no", outTradeNo);
+                order.put("trade_state", STATES[Math.floorMod(outTradeNo.hashCode(), STATES.length)]);
+                future.complete(order);
+            }, latencyMillis, TimeUnit.MILLISECONDS);
+            return future;
+        }
+        
+        void shutdown() {
+            timer.shutdownNow();
+        }
+    }
+}
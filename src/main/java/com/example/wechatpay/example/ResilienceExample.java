@@ -0,0 +1,172 @@
+package com.example.wechatpay.example;
+
+import com.example.wechatpay.config.WeChatPayConfig;
+import com.example.wechatpay.util.HttpClientUtil;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 熔断与自适应并发限制示例
+ * 把api-base-url指向本地模拟网关，依次模拟正常、变慢、恢复、返回5xx几个阶段，
+ * 观察HttpClientUtil如何收缩并发上限、快速拒绝请求、熔断以及探测恢复，不需要真实的微信支付商户号
+ */
+public class ResilienceExample {
+    
+    private static final String MCH_ID = "1900000001";
+    
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        StubGateway gateway = new StubGateway();
+        
+        WeChatPayConfig config = new WeChatPayConfig();
+        config.setApiBaseUrl(gateway.baseUrl());
+        // 超过500ms算慢请求，连续5次5xx熔断1秒
+        config.setConcurrencyInitialLimit(20);
+        config.setConcurrencyLatencyThreshold(500);
+        config.setCircuitFailureThreshold(5);
+        config.setCircuitOpenTime(1000);
+        HttpClientUtil.configure(config);
+        
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey privateKey = generator.generateKeyPair().getPrivate();
+        String url = config.getApiBaseUrl() + "/v3/pay/transactions/out-trade-no/ORDER1?mchid=" + MCH_ID;
+        
+        try {
+            // 预热签名和连接，避免首批请求的耗时被算作网关变慢
+            gateway.respond(20, 200);
+            HttpClientUtil.doGetWithSign(url, MCH_ID, "SERIAL", privateKey);
+            
+            // 8个调用方，低于并发上限，请求全部发出
+            runPhase("正常响应", requests, 8, url, privateKey);
+            
+            // 网关变慢，32个调用方同时等待，并发上限逐步收缩，超出上限的请求立即被拒绝
+            gateway.respond(1000, 200);
+            runPhase("响应变慢", requests, 32, url, privateKey);
+            
+            // 响应恢复后并发上限逐步回升
+            gateway.respond(20, 200);
+            runPhase("恢复正常", requests, 8, url, privateKey);
+            
+            // 连续5次503后熔断，熔断期间的请求不再发往网关
+            gateway.respond(20, 503);
+            runPhase("返回503", requests, 8, url, privateKey);
+            
+            // 等熔断时间过去，放行的探测请求成功后熔断器关闭
+            gateway.respond(20, 200);
+            Thread.sleep(config.getCircuitOpenTime());
+            runPhase("熔断后恢复", requests, 8, url, privateKey);
+        } finally {
+            HttpClientUtil.shutdown();
+            gateway.shutdown();
+        }
+        System.out.println("模拟网关收到请求: " + gateway.requests.get());
+    }
+    
+    /**
+     * 并发发送一批查询请求，统计成功、网关错误和被快速拒绝的数量
+     */
+    private static void runPhase(String phase, int requests, int concurrency, String url,
+                                 PrivateKey privateKey) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicReference<String> firstRejection = new AtomicReference<>();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            futures.add(callers.submit(() -> {
+                try {
+                    String response = HttpClientUtil.doGetWithSign(url, MCH_ID, "SERIAL", privateKey);
+                    if (response != null && response.contains("SYSTEM_ERROR")) {
+                        errors.incrementAndGet();
+                    } else {
+                        succeeded.incrementAndGet();
+                    }
+                } catch (RejectedExecutionException e) {
+                    rejected.incrementAndGet();
+                    firstRejection.compareAndSet(null, e.getMessage());
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        
+        System.out.println("【" + phase + "】耗时" + elapsed + "ms, 成功: " + succeeded.get()
+                + ", 网关错误: " + errors.get() + ", 快速拒绝: " + rejected.get());
+        if (firstRejection.get() != null) {
+            System.out.println("  拒绝原因: " + firstRejection.get());
+        }
+        System.out.println("  接口状态: " + HttpClientUtil.getResilienceStats());
+    }
+    
+    /**
+     * 本地模拟网关，延迟和状态码可以随时调整
+     */
+    static class StubGateway {
+        
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final AtomicLong requests = new AtomicLong();
+        private volatile long latencyMillis;
+        private volatile int status = 200;
+        
+        StubGateway() throws Exception {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", exchange -> {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                int code = status;
+                String body = code == 200
+                        ? "{\"out_trade_no\":\"ORDER1\",\"trade_state\":\"SUCCESS\"}"
+                        : "{\"code\":\"SYSTEM_ERROR\",\"message\":\"系统错误\"}";
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(code, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            server.setExecutor(executor);
+            server.start();
+        }
+        
+        String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+        
+        void respond(long latencyMillis, int status) {
+            this.latencyMillis = latencyMillis;
+            this.status = status;
+        }
+        
+        void shutdown() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.wechatpay.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回调通知去重缓存
+ * 微信支付在未收到成功应答时会在约24小时内反复重试同一条通知，这里记录已处理过的通知，
+ * 重复的通知直接返回首次处理的结果，跳过解密和解析
+ *
+ * 内存中的记录有数量上限，并在过期后淘汰；所有记录的有效期相同，因此按写入顺序淘汰即可。
+ * 处理前先用{@link #claim}认领去重键，同一条通知的多个副本并发到达时只有一个会被处理；认领只在本实例内有效。
+ * 需要在重启或多实例之间去重时，可以提供{@link Store}的实现（如Redis），内存未命中时再查询
+ * 
+ * @param <V> 缓存的处理结果类型
+ */
+public class NotifyDeduplicator<V> {
+    
+    /**
+     * 持久化的去重存储
+     */
+    public interface Store {
+        
+        /**
+         * 查询已处理通知的结果
+         * 
+         * @param key 去重键
+         * @return 处理结果，未处理过时返回null
+         */
+        String get(String key);
+        
+        /**
+         * 记录已处理通知的结果
+         * 
+         * @param key 去重键
+         * @param value 处理结果
+         * @param ttlMillis 有效期（毫秒）
+         */
+        void put(String key, String value, long ttlMillis);
+    }
+    
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Store store;
+    
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Map<String, Boolean> inProgress = new ConcurrentHashMap<>();
+    
+    /**
+     * @param maxSize 内存中最多保留的记录数
+     * @param ttlMillis 记录有效期（毫秒）
+     * @param store 持久化存储，不需要时传null
+     */
+    public NotifyDeduplicator(int maxSize, long ttlMillis, Store store) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive: " + ttlMillis);
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.store = store;
+    }
+    
+    /**
+     * 查询内存中的处理结果
+     * 
+     * @param key 去重键
+     * @return 处理结果，未处理过或已过期时返回null
+     */
+    public V get(String key) {
+        if (key == null) {
+            return null;
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt - System.currentTimeMillis() <= 0) {
+            if (entries.remove(key, entry)) {
+                size.decrementAndGet();
+            }
+            return null;
+        }
+        return entry.value;
+    }
+    
+    /**
+     * 查询持久化存储中的处理结果
+     * 
+     * @param key 去重键
+     * @return 处理结果，未配置存储或未处理过时返回null
+     */
+    public String getStored(String key) {
+        return store != null && key != null ? store.get(key) : null;
+    }
+    
+    /**
+     * 记录处理结果
+     * 
+     * @param key 去重键
+     * @param value 处理结果
+     * @param storedValue 写入持久化存储的结果（如解密后的明文），未配置存储时忽略
+     */
+    public void put(String key, V value, String storedValue) {
+        if (key == null) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        if (previous == null) {
+            insertionOrder.add(key);
+            size.incrementAndGet();
+            evict();
+        }
+        if (store != null && storedValue != null) {
+            store.put(key, storedValue, ttlMillis);
+        }
+    }
+    
+    /**
+     * 认领去重键，认领成功后才能处理，处理结束（无论成败）后调用{@link #release}
+     * 处理成功时应先{@link #put}再释放，之后的认领会看到处理结果而失败
+     * 
+     * @param key 去重键，为null时视为认领成功
+     * @return 是否认领成功，其他线程正在处理或已处理过时返回false
+     */
+    public boolean claim(String key) {
+        if (key == null) {
+            return true;
+        }
+        if (inProgress.putIfAbsent(key, Boolean.TRUE) != null) {
+            return false;
+        }
+        // 先占位再检查，与处理方先写入结果再释放的顺序配合，不会漏掉刚处理完的记录
+        if (get(key) != null) {
+            inProgress.remove(key);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 释放认领的去重键，处理失败时释放后，重试的通知可以再次认领
+     * 
+     * @param key 去重键，为null时忽略
+     */
+    public void release(String key) {
+        if (key != null) {
+            inProgress.remove(key);
+        }
+    }
+    
+    /**
+     * 内存中的记录数
+     */
+    public int size() {
+        return size.get();
+    }
+    
+    /**
+     * 从最早写入的记录开始，淘汰超出数量上限或已过期的记录
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        String oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            Entry<V> entry = entries.get(oldest);
+            boolean stale = entry == null || entry.expireAt - now <= 0;
+            if (!stale && size.get() <= maxSize) {
+                return;
+            }
+            if (!insertionOrder.remove(oldest)) {
+                // 其他线程已淘汰
+                continue;
+            }
+            if (entry != null && entries.remove(oldest, entry)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+    
+    private static final class Entry<V> {
+        
+        private final V value;
+        private final long expireAt;
+        
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
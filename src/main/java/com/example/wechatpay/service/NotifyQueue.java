@@ -0,0 +1,481 @@
+package com.example.wechatpay.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回调通知处理队列
+ * 回调接口只需把请求体放入有界队列即可应答，由工作线程批量完成解密、解析和业务处理，
+ * 下游变慢时不会拖慢应答导致微信支付超时重试。队列满时入队失败，调用方应答失败让微信支付稍后重试
+ *
+ * 配置了预写日志目录时，入队的通知先追加到日志文件再应答，处理成功后追加完成标记；
+ * 进程重启后未完成的通知会重新入队，保证已应答的通知不会丢失
+ *
+ * 处理失败的通知按退避时间重新入队，达到最大处理次数后写入死信文件（与预写日志同目录的name.dead），
+ * 未配置预写日志时记录ERROR日志，之后才视为完成，微信支付不会再重试已应答的通知
+ */
+public class NotifyQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotifyQueue.class);
+    
+    /**
+     * 没有未完成的通知时，日志文件超过该大小则清空
+     */
+    private static final long WAL_COMPACT_SIZE = 64L * 1024 * 1024;
+    
+    /**
+     * 批量处理回调
+     */
+    @FunctionalInterface
+    public interface BatchHandler {
+        
+        /**
+         * 处理一批通知，抛出异常时整批计为失败
+         * 
+         * @param batch 通知请求体
+         * @return 处理失败的通知（batch中的元素本身），全部成功时返回空列表
+         */
+        List<byte[]> handle(List<byte[]> batch) throws Exception;
+    }
+    
+    private final String name;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoff;
+    private final BatchHandler handler;
+    private final BlockingQueue<Event> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retryScheduler;
+    private final WriteAheadLog wal;
+    private volatile boolean running = true;
+    
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger retrying = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    
+    /**
+     * @param name 队列名称，用于线程名和日志
+     * @param capacity 队列容量
+     * @param workerThreads 工作线程数
+     * @param batchSize 每批最多处理的通知数
+     * @param maxAttempts 每条通知最多处理次数（包括首次）
+     * @param retryBackoff 首次重新处理前的等待时间（毫秒），之后每次翻倍
+     * @param walDir 预写日志目录，不需要时传null
+     * @param handler 批量处理回调
+     */
+    public NotifyQueue(String name, int capacity, int workerThreads, int batchSize, int maxAttempts,
+                       long retryBackoff, Path walDir, BatchHandler handler) throws IOException {
+        if (capacity <= 0 || workerThreads <= 0 || batchSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("capacity, workerThreads, batchSize and maxAttempts must be positive");
+        }
+        this.name = name;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.wal = walDir != null
+                ? new WriteAheadLog(walDir.resolve(name + ".wal"), walDir.resolve(name + ".dead")) : null;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // 恢复上次未处理完的通知
+        if (wal != null) {
+            List<Event> pending = wal.recover();
+            for (Event event : pending) {
+                if (!queue.offer(event)) {
+                    throw new IllegalStateException(name + "队列容量不足以恢复未完成的通知: " + pending.size());
+                }
+                sequence.set(Math.max(sequence.get(), event.sequence));
+            }
+            if (!pending.isEmpty()) {
+                logger.info("{}恢复未完成的通知: {}", name, pending.size());
+            }
+        }
+        
+        for (int i = 1; i <= workerThreads; i++) {
+            Thread worker = new Thread(this::work, name + "-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+    
+    /**
+     * 通知入队，请求体会被复制，调用方可以继续复用原缓冲区
+     * 
+     * @param body 请求体
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否入队成功，队列已满或已关闭时返回false
+     */
+    public boolean offer(byte[] body, int offset, int length) {
+        if (!running) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        byte[] copy = new byte[length];
+        System.arraycopy(body, offset, copy, 0, length);
+        Event event = new Event(sequence.incrementAndGet(), copy);
+        
+        if (wal != null) {
+            // 先保证队列有空位，避免写入日志后又入队失败
+            if (queue.remainingCapacity() == 0) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            try {
+                wal.appendEnqueued(event);
+            } catch (IOException e) {
+                logger.error("{}写入预写日志失败", name, e);
+                rejected.incrementAndGet();
+                return false;
+            }
+        }
+        if (!queue.offer(event)) {
+            rejected.incrementAndGet();
+            if (wal != null) {
+                wal.appendDoneQuietly(event.sequence);
+            }
+            return false;
+        }
+        enqueued.incrementAndGet();
+        updateMaxDepth(queue.size());
+        return true;
+    }
+    
+    /**
+     * 停止接收新通知，等待队列中的通知处理完
+     * 等待重新处理的通知不再入队，配置了预写日志时在下次启动后恢复
+     * 
+     * @param timeoutMillis 最长等待时间（毫秒）
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        retryScheduler.shutdownNow();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread worker : workers) {
+            long remaining = deadline - System.currentTimeMillis();
+            try {
+                worker.join(Math.max(remaining, 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        if (!queue.isEmpty() || retrying.get() > 0) {
+            logger.warn("{}关闭时仍有未处理的通知: {}，等待重新处理的通知: {}", name, queue.size(), retrying.get());
+        }
+        if (wal != null) {
+            wal.close();
+        }
+    }
+    
+    /**
+     * 队列运行指标
+     * 
+     * @return 指标名到数值
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enqueued", enqueued.get());
+        stats.put("rejected", rejected.get());
+        stats.put("processed", processed.get());
+        stats.put("failed", failed.get());
+        stats.put("retried", retried.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("retrying", retrying.get());
+        stats.put("batches", batches.get());
+        stats.put("depth", queue.size());
+        stats.put("maxDepth", maxDepth.get());
+        stats.put("remainingCapacity", queue.remainingCapacity());
+        return stats;
+    }
+    
+    private void work() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        List<byte[]> bodies = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (Event event : batch) {
+                    bodies.add(event.body);
+                }
+                
+                Set<byte[]> failures = Collections.newSetFromMap(new IdentityHashMap<>());
+                try {
+                    List<byte[]> result = handler.handle(bodies);
+                    if (result != null) {
+                        failures.addAll(result);
+                    }
+                } catch (Exception e) {
+                    failures.addAll(bodies);
+                    logger.error("{}批量处理通知异常，数量: {}", name, batch.size(), e);
+                }
+                batches.incrementAndGet();
+                
+                // 只有处理成功的通知才写完成标记，失败的稍后重新处理
+                for (Event event : batch) {
+                    if (failures.contains(event.body)) {
+                        failed.incrementAndGet();
+                        retryOrDeadLetter(event);
+                    } else {
+                        processed.incrementAndGet();
+                        if (wal != null) {
+                            wal.appendDoneQuietly(event.sequence);
+                        }
+                    }
+                }
+                if (wal != null) {
+                    wal.compactIfIdle(queue.isEmpty());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                bodies.clear();
+            }
+        }
+    }
+    
+    /**
+     * 未达到最大处理次数时按退避时间重新入队，否则写入死信
+     */
+    private void retryOrDeadLetter(Event event) {
+        event.attempts++;
+        if (event.attempts >= maxAttempts) {
+            deadLetter(event);
+            return;
+        }
+        retried.incrementAndGet();
+        retrying.incrementAndGet();
+        scheduleRetry(event, retryBackoff << Math.min(event.attempts - 1, 10));
+    }
+    
+    private void scheduleRetry(Event event, long delayMillis) {
+        try {
+            retryScheduler.schedule(() -> {
+                if (queue.offer(event)) {
+                    retrying.decrementAndGet();
+                    updateMaxDepth(queue.size());
+                } else if (running) {
+                    // 队列已满时稍后再试，通知不能丢弃
+                    scheduleRetry(event, delayMillis);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已关闭，未写完成标记的通知在下次启动时从预写日志恢复
+            logger.warn("{}已关闭，通知不再重新处理: {}", name, event.sequence);
+        }
+    }
+    
+    /**
+     * 放弃处理，保留原始通知以便人工处理
+     */
+    private void deadLetter(Event event) {
+        deadLettered.incrementAndGet();
+        if (wal == null) {
+            logger.error("{}通知处理{}次仍失败，已放弃: {}", name, event.attempts,
+                    Base64.getEncoder().encodeToString(event.body));
+            return;
+        }
+        try {
+            wal.appendDeadLetter(event);
+            logger.error("{}通知处理{}次仍失败，已写入死信文件: {}", name, event.attempts, event.sequence);
+            wal.appendDoneQuietly(event.sequence);
+        } catch (IOException e) {
+            // 不写完成标记，下次启动时从预写日志恢复
+            logger.error("{}写入死信文件失败: {}", name, event.sequence, e);
+        }
+    }
+    
+    private void updateMaxDepth(int depth) {
+        int current;
+        while (depth > (current = maxDepth.get())) {
+            if (maxDepth.compareAndSet(current, depth)) {
+                return;
+            }
+        }
+    }
+    
+    private static final class Event {
+        
+        private final long sequence;
+        private final byte[] body;
+        
+        /**
+         * 已处理失败的次数，只由当前持有该通知的工作线程或重试线程修改
+         */
+        private int attempts;
+        
+        Event(long sequence, byte[] body) {
+            this.sequence = sequence;
+            this.body = body;
+        }
+    }
+    
+    /**
+     * 预写日志，每行一条记录：入队为"E 序号 Base64请求体"，完成为"D 序号"；
+     * 死信文件格式与入队记录相同
+     */
+    private static final class WriteAheadLog {
+        
+        private final Path file;
+        private final Path deadLetterFile;
+        private FileChannel channel;
+        private long pending;
+        
+        WriteAheadLog(Path file, Path deadLetterFile) throws IOException {
+            Files.createDirectories(file.getParent());
+            this.file = file;
+            this.deadLetterFile = deadLetterFile;
+        }
+        
+        /**
+         * 读取未完成的通知，并把日志重写为只包含这些通知
+         */
+        synchronized List<Event> recover() throws IOException {
+            Map<Long, Event> unfinished = new LinkedHashMap<>();
+            if (Files.exists(file)) {
+                Set<Long> done = new HashSet<>();
+                List<Event> events = new ArrayList<>();
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(" ");
+                        // 进程崩溃时最后一行可能不完整
+                        try {
+                            if (parts.length == 3 && "E".equals(parts[0])) {
+                                events.add(new Event(Long.parseLong(parts[1]), Base64.getDecoder().decode(parts[2])));
+                            } else if (parts.length == 2 && "D".equals(parts[0])) {
+                                done.add(Long.parseLong(parts[1]));
+                            }
+                        } catch (IllegalArgumentException e) {
+                            logger.warn("忽略损坏的预写日志记录: {}", file);
+                        }
+                    }
+                }
+                for (Event event : events) {
+                    if (!done.contains(event.sequence)) {
+                        unfinished.put(event.sequence, event);
+                    }
+                }
+            }
+            
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Event event : unfinished.values()) {
+                    write(out, enqueuedRecord(event));
+                }
+                out.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            pending = unfinished.size();
+            return new ArrayList<>(unfinished.values());
+        }
+        
+        synchronized void appendEnqueued(Event event) throws IOException {
+            write(channel, enqueuedRecord(event));
+            channel.force(false);
+            pending++;
+        }
+        
+        synchronized void appendDoneQuietly(long sequence) {
+            // 无论标记是否写入都已处理完，否则未完成数不会归零，日志永远不会清空
+            pending--;
+            try {
+                write(channel, "D " + sequence + "\n");
+            } catch (IOException e) {
+                // 完成标记丢失只会导致重启后重复处理，由去重逻辑兜底
+                logger.warn("写入预写日志完成标记失败: {}", sequence, e);
+            }
+        }
+        
+        synchronized void appendDeadLetter(Event event) throws IOException {
+            try (FileChannel out = FileChannel.open(deadLetterFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                write(out, enqueuedRecord(event));
+                out.force(false);
+            }
+        }
+        
+        synchronized void compactIfIdle(boolean queueEmpty) {
+            try {
+                if (queueEmpty && pending == 0 && channel.size() > WAL_COMPACT_SIZE) {
+                    channel.truncate(0);
+                }
+            } catch (IOException e) {
+                logger.warn("清空预写日志失败: {}", file, e);
+            }
+        }
+        
+        synchronized void close() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                logger.warn("关闭预写日志失败: {}", file, e);
+            }
+        }
+        
+        private static String enqueuedRecord(Event event) {
+            return "E " + event.sequence + " " + Base64.getEncoder().encodeToString(event.body) + "\n";
+        }
+        
+        private static void write(FileChannel channel, String record) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(record.getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
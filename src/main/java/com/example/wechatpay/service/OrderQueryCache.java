@@ -0,0 +1,145 @@
+package com.example.wechatpay.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 订单查询结果缓存
+ * 前端轮询订单状态时，同一商户订单号的并发查询共用一次正在进行的请求，查询结果按交易状态缓存：
+ * 未支付、支付中等中间状态只缓存很短时间，支付成功、已关闭等终态缓存较长时间，
+ * 收到支付通知或关单、退款后主动失效
+ */
+public class OrderQueryCache {
+    
+    /**
+     * 不会再变化（或只会因退款变化，退款时主动失效）的交易状态
+     */
+    private static final Set<String> TERMINAL_STATES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("SUCCESS", "CLOSED", "REFUND", "REVOKED", "PAYERROR")));
+    
+    /**
+     * 请求尚未完成的记录的过期时间
+     */
+    private static final long IN_FLIGHT = Long.MAX_VALUE;
+    
+    private final long ttlMillis;
+    private final long terminalTtlMillis;
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * @param ttlMillis 中间状态的缓存时间（毫秒）
+     * @param terminalTtlMillis 终态的缓存时间（毫秒）
+     * @param maxSize 最多缓存的订单数
+     */
+    public OrderQueryCache(long ttlMillis, long terminalTtlMillis, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.ttlMillis = ttlMillis;
+        this.terminalTtlMillis = terminalTtlMillis;
+        this.maxSize = maxSize;
+    }
+    
+    /**
+     * 查询订单
+     * 缓存有效时直接返回；同一订单已有查询在进行时共用其结果；否则调用loader查询。
+     * 查询失败或结果为null时不缓存
+     * 
+     * @param outTradeNo 商户订单号
+     * @param loader 实际查询
+     * @return 订单信息（不可修改）
+     */
+    public CompletableFuture<Map<String, Object>> get(String outTradeNo,
+                                                      Function<String, CompletableFuture<Map<String, Object>>> loader) {
+        while (true) {
+            Entry entry = entries.get(outTradeNo);
+            if (entry != null && entry.expireAt - System.currentTimeMillis() > 0) {
+                return entry.result;
+            }
+            Entry created = new Entry();
+            boolean owner = entry == null
+                    ? entries.putIfAbsent(outTradeNo, created) == null
+                    : entries.replace(outTradeNo, entry, created);
+            if (owner) {
+                if (entries.size() > maxSize) {
+                    evict();
+                }
+                load(outTradeNo, created, loader);
+                return created.result;
+            }
+        }
+    }
+    
+    /**
+     * 使订单的缓存失效，正在进行的查询不受影响，但其结果不会被后续调用复用
+     * 
+     * @param outTradeNo 商户订单号
+     */
+    public void invalidate(String outTradeNo) {
+        if (outTradeNo != null) {
+            entries.remove(outTradeNo);
+        }
+    }
+    
+    /**
+     * 缓存的订单数（包括正在查询的）
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    private void load(String outTradeNo, Entry entry,
+                      Function<String, CompletableFuture<Map<String, Object>>> loader) {
+        CompletableFuture<Map<String, Object>> source;
+        try {
+            source = loader.apply(outTradeNo);
+        } catch (RuntimeException e) {
+            entries.remove(outTradeNo, entry);
+            entry.result.completeExceptionally(e);
+            return;
+        }
+        source.whenComplete((order, error) -> {
+            if (error != null || order == null) {
+                entries.remove(outTradeNo, entry);
+                if (error != null) {
+                    entry.result.completeExceptionally(error);
+                } else {
+                    entry.result.complete(null);
+                }
+                return;
+            }
+            Object state = order.get("trade_state");
+            long ttl = state != null && TERMINAL_STATES.contains(state.toString()) ? terminalTtlMillis : ttlMillis;
+            entry.expireAt = System.currentTimeMillis() + ttl;
+            entry.result.complete(Collections.unmodifiableMap(order));
+        });
+    }
+    
+    /**
+     * 先淘汰已过期的记录，仍超出上限时再淘汰任意已完成的记录
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expireAt != IN_FLIGHT && entry.expireAt - now <= 0);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            if (iterator.next().expireAt != IN_FLIGHT) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        private volatile long expireAt = IN_FLIGHT;
+    }
+}
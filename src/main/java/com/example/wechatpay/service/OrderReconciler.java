@@ -0,0 +1,396 @@
+package com.example.wechatpay.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单状态对账
+ * 逐个读取待对账的商户订单号，以有限的并发和限定的速率查询订单状态，
+ * 临时失败（查询异常或无响应）按带随机抖动的指数退避重试，查询到状态变化后立即回调，不必等待整批完成
+ *
+ * 查询方式通过{@link OrderQuery}注入，可以使用{@link WeChatPayService#reconcileOrders}对接微信支付，
+ * 也可以对接本地的模拟网关做压测
+ */
+public class OrderReconciler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderReconciler.class);
+    
+    /**
+     * 仍在等待支付的交易状态，查询到其他状态即视为状态变化
+     */
+    private static final Set<String> PENDING_STATES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("NOTPAY", "USERPAYING")));
+    
+    /**
+     * 并发上限，受Phaser可注册数量的限制
+     */
+    private static final int MAX_CONCURRENCY = 65534;
+    
+    /**
+     * 单个订单的查询
+     */
+    @FunctionalInterface
+    public interface OrderQuery {
+        
+        /**
+         * 查询订单
+         * 
+         * @param outTradeNo 商户订单号
+         * @return 订单信息，完成为null或异常时视为临时失败
+         */
+        CompletableFuture<Map<String, Object>> query(String outTradeNo);
+    }
+    
+    /**
+     * 对账结果的接收者，按需覆盖关心的回调；回调可能在多个线程中并发调用
+     */
+    public interface Listener {
+        
+        /**
+         * 订单状态已变化（不再是未支付或支付中）
+         */
+        default void onStateChanged(String outTradeNo, String tradeState, Map<String, Object> order) {
+        }
+        
+        /**
+         * 订单仍在等待支付
+         */
+        default void onUnchanged(String outTradeNo, String tradeState) {
+        }
+        
+        /**
+         * 重试次数用完仍然失败，或响应中没有交易状态（如订单不存在）
+         */
+        default void onFailed(String outTradeNo, Throwable cause, Map<String, Object> response) {
+        }
+    }
+    
+    private final OrderQuery query;
+    private final int maxConcurrency;
+    private final RateLimiter rateLimiter;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    
+    /**
+     * @param query 订单查询
+     * @param maxConcurrency 最多同时进行的查询数（包括等待重试的）
+     * @param permitsPerSecond 每秒最多发起的查询数（包括重试）
+     * @param maxAttempts 每个订单最多查询次数
+     * @param baseBackoffMillis 首次重试的退避上限（毫秒），之后每次翻倍
+     * @param maxBackoffMillis 退避上限（毫秒）
+     */
+    public OrderReconciler(OrderQuery query, int maxConcurrency, double permitsPerSecond,
+                           int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxConcurrency <= 0 || permitsPerSecond <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxConcurrency, permitsPerSecond and maxAttempts must be positive");
+        }
+        if (maxConcurrency > MAX_CONCURRENCY) {
+            throw new IllegalArgumentException("maxConcurrency must not exceed " + MAX_CONCURRENCY);
+        }
+        this.query = query;
+        this.maxConcurrency = maxConcurrency;
+        this.rateLimiter = new RateLimiter(permitsPerSecond);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+    
+    /**
+     * 对账一批订单，阻塞到全部完成
+     * 订单号按需从迭代器读取，并发已满时暂停读取，因此可以传入数据库游标等流式数据源
+     * 
+     * @param outTradeNos 待对账的商户订单号
+     * @param listener 结果接收者
+     * @return 本次对账的统计
+     */
+    public Report run(Iterator<String> outTradeNos, Listener listener) throws InterruptedException {
+        Run run = new Run(listener);
+        ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-reconcile-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        run.retryScheduler = retryScheduler;
+        try {
+            while (outTradeNos.hasNext()) {
+                String outTradeNo = outTradeNos.next();
+                run.permits.acquire();
+                run.inFlight.register();
+                run.submitted.incrementAndGet();
+                TimeUnit.NANOSECONDS.sleep(rateLimiter.reserve());
+                run.attempt(outTradeNo, 1, System.nanoTime());
+            }
+            run.inFlight.arriveAndAwaitAdvance();
+        } finally {
+            retryScheduler.shutdownNow();
+        }
+        Report report = run.report();
+        logger.info("订单对账完成: {}", report);
+        return report;
+    }
+    
+    /**
+     * 一次对账的状态
+     */
+    private final class Run {
+        
+        private final Listener listener;
+        private final Semaphore permits = new Semaphore(maxConcurrency);
+        // 主线程作为一方注册，每个进行中的订单再注册一方
+        private final Phaser inFlight = new Phaser(1);
+        private final long startNanos = System.nanoTime();
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private ScheduledExecutorService retryScheduler;
+        
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        
+        Run(Listener listener) {
+            this.listener = listener;
+        }
+        
+        void attempt(String outTradeNo, int attempt, long startedAt) {
+            CompletableFuture<Map<String, Object>> future;
+            try {
+                future = query.query(outTradeNo);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((order, error) -> {
+                if (error == null && order != null) {
+                    complete(outTradeNo, order, startedAt);
+                } else if (attempt < maxAttempts) {
+                    retry(outTradeNo, attempt + 1, startedAt);
+                } else {
+                    failed.incrementAndGet();
+                    notifyListener(() -> listener.onFailed(outTradeNo, error, null));
+                    finish(startedAt);
+                }
+            });
+        }
+        
+        void complete(String outTradeNo, Map<String, Object> order, long startedAt) {
+            Object state = order.get("trade_state");
+            if (state == null) {
+                failed.incrementAndGet();
+                notifyListener(() -> listener.onFailed(outTradeNo, null, order));
+            } else if (PENDING_STATES.contains(state.toString())) {
+                unchanged.incrementAndGet();
+                notifyListener(() -> listener.onUnchanged(outTradeNo, state.toString()));
+            } else {
+                changed.incrementAndGet();
+                notifyListener(() -> listener.onStateChanged(outTradeNo, state.toString(), order));
+            }
+            finish(startedAt);
+        }
+        
+        void retry(String outTradeNo, int attempt, long startedAt) {
+            retries.incrementAndGet();
+            // 全抖动：在[0, 退避上限)内随机等待，避免大量失败的订单同时重试
+            long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 2, 30));
+            long backoffNanos = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(Math.max(ceiling, 1)));
+            retryScheduler.schedule(() -> {
+                retryScheduler.schedule(() -> attempt(outTradeNo, attempt, startedAt),
+                        rateLimiter.reserve(), TimeUnit.NANOSECONDS);
+            }, backoffNanos, TimeUnit.NANOSECONDS);
+        }
+        
+        void finish(long startedAt) {
+            latencies.record(System.nanoTime() - startedAt);
+            permits.release();
+            inFlight.arriveAndDeregister();
+        }
+        
+        void notifyListener(Runnable callback) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                logger.error("订单对账回调异常", e);
+            }
+        }
+        
+        Report report() {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            return new Report(submitted.get(), changed.get(), unchanged.get(), failed.get(), retries.get(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), latencies.percentile(0.5),
+                    latencies.percentile(0.99), latencies.percentile(1.0));
+        }
+    }
+    
+    /**
+     * 对账统计
+     */
+    public static final class Report {
+        
+        private final long total;
+        private final long changed;
+        private final long unchanged;
+        private final long failed;
+        private final long retries;
+        private final long elapsedMillis;
+        private final long p50Millis;
+        private final long p99Millis;
+        private final long maxMillis;
+        
+        Report(long total, long changed, long unchanged, long failed, long retries, long elapsedMillis,
+               long p50Millis, long p99Millis, long maxMillis) {
+            this.total = total;
+            this.changed = changed;
+            this.unchanged = unchanged;
+            this.failed = failed;
+            this.retries = retries;
+            this.elapsedMillis = elapsedMillis;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+        
+        public long getTotal() {
+            return total;
+        }
+        
+        public long getChanged() {
+            return changed;
+        }
+        
+        public long getUnchanged() {
+            return unchanged;
+        }
+        
+        public long getFailed() {
+            return failed;
+        }
+        
+        public long getRetries() {
+            return retries;
+        }
+        
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        
+        /**
+         * 每秒完成的订单数
+         */
+        public double getThroughput() {
+            return elapsedMillis == 0 ? total : total * 1000.0 / elapsedMillis;
+        }
+        
+        /**
+         * 单个订单从首次查询到完成（含重试）耗时的中位数（毫秒）
+         */
+        public long getP50Millis() {
+            return p50Millis;
+        }
+        
+        public long getP99Millis() {
+            return p99Millis;
+        }
+        
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+        
+        /**
+         * 转换为指标名到数值，便于输出为JSON
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("total", total);
+            map.put("changed", changed);
+            map.put("unchanged", unchanged);
+            map.put("failed", failed);
+            map.put("retries", retries);
+            map.put("elapsedMillis", elapsedMillis);
+            map.put("throughput", getThroughput());
+            map.put("p50Millis", p50Millis);
+            map.put("p99Millis", p99Millis);
+            map.put("maxMillis", maxMillis);
+            return map;
+        }
+        
+        @Override
+        public String toString() {
+            return toMap().toString();
+        }
+    }
+    
+    /**
+     * 平滑限流：按固定间隔发放许可，调用方等待到自己的时间片
+     * 空闲时最多积累少量许可，抵消线程睡眠超时造成的速率损失
+     */
+    private static final class RateLimiter {
+        
+        private static final int MAX_BURST = 10;
+        
+        private final long intervalNanos;
+        private long nextFreeNanos = System.nanoTime();
+        
+        RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        }
+        
+        /**
+         * 预约一个许可
+         * 
+         * @return 需要等待的时间（纳秒）
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            long earliest = now - intervalNanos * MAX_BURST;
+            if (nextFreeNanos - earliest < 0) {
+                nextFreeNanos = earliest;
+            }
+            long wait = Math.max(nextFreeNanos - now, 0);
+            nextFreeNanos += intervalNanos;
+            return wait;
+        }
+    }
+    
+    /**
+     * 记录耗时，用于计算分位数
+     */
+    private static final class LatencyRecorder {
+        
+        private long[] values = new long[1024];
+        private int size;
+        
+        synchronized void record(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+        
+        synchronized long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(index, 0)]);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.wechatpay.service;
+
+import com.example.wechatpay.constant.WeChatPayConstants;
+import com.example.wechatpay.model.response.UnifiedOrderResponse;
+
+import java.util.function.Function;
+
+/**
+ * 下单支付通道
+ * 各通道的请求体格式相同，只有接口地址和应答中返回给调用方的字段不同
+ */
+public enum PayChannel {
+    
+    JSAPI("JSAPI", WeChatPayConstants.JSAPI_PAY_URL, "prepay_id", UnifiedOrderResponse::getPrepayId),
+    NATIVE("Native", WeChatPayConstants.NATIVE_PAY_URL, "code_url", UnifiedOrderResponse::getCodeUrl),
+    APP("APP", WeChatPayConstants.APP_PAY_URL, "prepay_id", UnifiedOrderResponse::getPrepayId),
+    H5("H5", WeChatPayConstants.H5_PAY_URL, "h5_url", UnifiedOrderResponse::getH5Url);
+    
+    private final String displayName;
+    private final String path;
+    private final String resultName;
+    private final Function<UnifiedOrderResponse, String> result;
+    
+    PayChannel(String displayName, String path, String resultName, Function<UnifiedOrderResponse, String> result) {
+        this.displayName = displayName;
+        this.path = path;
+        this.resultName = resultName;
+        this.result = result;
+    }
+    
+    /**
+     * 日志中使用的通道名称
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    /**
+     * 下单接口路径（不含域名）
+     */
+    public String getPath() {
+        return path;
+    }
+    
+    /**
+     * 返回给调用方的应答字段名
+     */
+    public String getResultName() {
+        return resultName;
+    }
+    
+    /**
+     * 从下单应答中取出返回给调用方的字段
+     * 
+     * @param response 下单应答
+     * @return prepay_id、code_url或h5_url
+     */
+    public String extract(UnifiedOrderResponse response) {
+        return result.apply(response);
+    }
+}
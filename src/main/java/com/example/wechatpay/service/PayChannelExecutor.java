@@ -0,0 +1,273 @@
+package com.example.wechatpay.service;
+
+import com.example.wechatpay.model.request.UnifiedOrderRequest;
+import com.example.wechatpay.model.response.UnifiedOrderResponse;
+import com.example.wechatpay.util.ApiMetrics;
+import com.example.wechatpay.util.HttpClientUtil;
+import com.example.wechatpay.util.PooledBuffer;
+import com.example.wechatpay.util.UnifiedOrderBodyWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 下单通道执行器
+ * JSAPI、Native、APP、H5下单共用同一套流程：按模板写请求体、签名发送、解析应答、按通道取出结果，
+ * 并统一做重试和计数，每个通道各有一组计数器；熔断和并发限制由HttpClientUtil按接口统一处理
+ * 
+ * 只有发送失败（网络异常、超时）才重试；微信支付返回的业务错误直接返回，不重试。
+ * 同一商户订单号以相同参数重复下单时微信支付返回同一个预支付交易，因此重试不会重复下单
+ */
+public class PayChannelExecutor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PayChannelExecutor.class);
+    
+    /**
+     * 发送已签名的下单请求
+     */
+    public interface Transport {
+        
+        /**
+         * 同步发送，返回时请求体已发送完毕
+         * 
+         * @param url 请求URL
+         * @param body 请求体
+         * @param offset 起始位置
+         * @param length 长度
+         * @return 应答内容
+         */
+        String post(String url, byte[] body, int offset, int length) throws Exception;
+        
+        /**
+         * 异步发送
+         * 
+         * @param url 请求URL
+         * @param body 请求体
+         * @param offset 起始位置
+         * @param length 长度
+         * @return 应答内容
+         */
+        CompletableFuture<String> postAsync(String url, byte[] body, int offset, int length);
+    }
+    
+    private final String apiV3Url;
+    private final UnifiedOrderBodyWriter bodyWriter;
+    private final Transport transport;
+    private final int maxAttempts;
+    private final long retryBackoff;
+    private final Map<PayChannel, ChannelState> channels = new EnumMap<>(PayChannel.class);
+    private final ScheduledExecutorService retryScheduler;
+    
+    /**
+     * @param apiV3Url 微信支付V3接口地址
+     * @param bodyWriter 请求体生成器
+     * @param transport 请求发送方式
+     * @param maxAttempts 每次下单最多发送次数
+     * @param retryBackoff 重试前等待时间（毫秒），之后每次翻倍
+     */
+    public PayChannelExecutor(String apiV3Url, UnifiedOrderBodyWriter bodyWriter, Transport transport,
+                              int maxAttempts, long retryBackoff) {
+        this.apiV3Url = apiV3Url;
+        this.bodyWriter = bodyWriter;
+        this.transport = transport;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        for (PayChannel channel : PayChannel.values()) {
+            channels.put(channel, new ChannelState());
+        }
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wechat-pay-channel-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 同步下单
+     * 
+     * @param channel 支付通道
+     * @param request 统一下单请求
+     * @return prepay_id、code_url或h5_url，微信支付返回业务错误时为null
+     * @throws RejectedExecutionException 接口熔断中或并发数已达上限
+     */
+    public String execute(PayChannel channel, UnifiedOrderRequest request) throws Exception {
+        ChannelState state = channels.get(channel);
+        String url = apiV3Url + channel.getPath();
+        state.requests.increment();
+        long start = System.nanoTime();
+        
+        // 请求体只写一次，重试时重新签名但复用同一段字节
+        PooledBuffer body = bodyWriter.write(request, PooledBuffer.request());
+        for (int attempt = 1; ; attempt++) {
+            String response;
+            try {
+                response = transport.post(url, body.array(), 0, body.length());
+            } catch (Exception e) {
+                recordRejected(state, e);
+                if (!retryable(e, attempt)) {
+                    state.failures.increment();
+                    state.latencyNanos.add(System.nanoTime() - start);
+                    throw e;
+                }
+                state.retries.increment();
+                ApiMetrics.forUrl(url).recordRetry();
+                logger.warn("{}支付下单第{}次发送失败，准备重试: {}", channel.getDisplayName(), attempt, e.toString());
+                Thread.sleep(backoff(attempt));
+                continue;
+            }
+            state.latencyNanos.add(System.nanoTime() - start);
+            return complete(channel, state, url, response);
+        }
+    }
+    
+    /**
+     * 异步下单，请求体在调用线程中写好，发送和重试不占用调用线程
+     * 
+     * @param channel 支付通道
+     * @param request 统一下单请求
+     * @return prepay_id、code_url或h5_url，微信支付返回业务错误时为null；发送失败或被拒绝时异常完成
+     */
+    public CompletableFuture<String> executeAsync(PayChannel channel, UnifiedOrderRequest request) {
+        ChannelState state = channels.get(channel);
+        String url = apiV3Url + channel.getPath();
+        state.requests.increment();
+        long start = System.nanoTime();
+        
+        // 重试可能发生在其他线程，请求体从当前线程的缓冲区复制出来
+        PooledBuffer buffer = bodyWriter.write(request, PooledBuffer.request());
+        byte[] body = Arrays.copyOf(buffer.array(), buffer.length());
+        CompletableFuture<String> result = new CompletableFuture<>();
+        attemptAsync(channel, state, url, body, 1, start, result);
+        return result;
+    }
+    
+    private void attemptAsync(PayChannel channel, ChannelState state, String url, byte[] body, int attempt,
+                              long start, CompletableFuture<String> result) {
+        CompletableFuture<String> sent;
+        try {
+            sent = transport.postAsync(url, body, 0, body.length);
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        sent.whenComplete((response, error) -> {
+            if (error == null) {
+                state.latencyNanos.add(System.nanoTime() - start);
+                try {
+                    result.complete(complete(channel, state, url, response));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            recordRejected(state, cause);
+            if (!retryable(cause, attempt)) {
+                state.failures.increment();
+                state.latencyNanos.add(System.nanoTime() - start);
+                result.completeExceptionally(cause);
+                return;
+            }
+            state.retries.increment();
+            ApiMetrics.forUrl(url).recordRetry();
+            logger.warn("{}支付下单第{}次发送失败，准备重试: {}", channel.getDisplayName(), attempt, cause.toString());
+            try {
+                retryScheduler.schedule(() -> attemptAsync(channel, state, url, body, attempt + 1, start, result),
+                        backoff(attempt), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                state.failures.increment();
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+    
+    /**
+     * 解析应答并取出返回给调用方的字段
+     * 微信支付的错误应答（如{"code":"PARAM_ERROR",...}）同样能解析出对象，只是没有所需字段，按失败计
+     */
+    private String complete(PayChannel channel, ChannelState state, String url, String response) {
+        UnifiedOrderResponse orderResponse = HttpClientUtil.parseResponse(url, response, UnifiedOrderResponse.class);
+        String value = orderResponse != null ? channel.extract(orderResponse) : null;
+        if (value != null) {
+            state.successes.increment();
+            logger.info("{}支付下单成功，{}: {}", channel.getDisplayName(), channel.getResultName(), value);
+            return value;
+        }
+        state.failures.increment();
+        logger.error("{}支付下单失败，响应: {}", channel.getDisplayName(), response);
+        return null;
+    }
+    
+    /**
+     * 熔断、并发数超限和异步请求数超限时请求没有发出，单独计数
+     */
+    private static void recordRejected(ChannelState state, Throwable e) {
+        if (e instanceof RejectedExecutionException) {
+            state.rejected.increment();
+        }
+    }
+    
+    /**
+     * 熔断、并发数超限和异步请求数超限是主动拒绝，立即失败，不重试
+     */
+    private boolean retryable(Throwable e, int attempt) {
+        return attempt < maxAttempts && !(e instanceof RejectedExecutionException)
+                && !(e instanceof InterruptedException);
+    }
+    
+    private long backoff(int attempt) {
+        return retryBackoff << Math.min(attempt - 1, 10);
+    }
+    
+    /**
+     * 各通道的请求、成功、失败、重试、拒绝数和平均耗时
+     * 
+     * @return 按通道名称分组的计数
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        channels.forEach((channel, state) -> stats.put(channel.getDisplayName(), state.toMap()));
+        return stats;
+    }
+    
+    /**
+     * 停止重试调度，等待中的重试不再发送
+     */
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+    
+    private static final class ChannelState {
+        
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long completed = successes.sum() + failures.sum();
+            map.put("requests", requests.sum());
+            map.put("successes", successes.sum());
+            map.put("failures", failures.sum());
+            map.put("retries", retries.sum());
+            map.put("rejected", rejected.sum());
+            map.put("avgLatencyMillis", completed == 0 ? 0 : latencyNanos.sum() / completed / 1_000_000.0);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.wechatpay.service;
+
+import com.example.wechatpay.util.SignatureUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 微信支付平台证书管理
+ * 证书只在启动和定时刷新时加载、解析一次，按序列号缓存公钥；
+ * 验签时直接取缓存的公钥，SignatureUtil按线程复用的验签对象在公钥不变时无需重新初始化
+ *
+ * 收到未知序列号的回调时（平台证书轮换），会触发一次提前刷新，两次提前刷新至少间隔一分钟
+ */
+public class PlatformCertificateManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PlatformCertificateManager.class);
+    
+    /**
+     * 两次由未知序列号触发的刷新的最小间隔（毫秒）
+     */
+    private static final long MIN_FORCED_REFRESH_INTERVAL = 60000;
+    
+    /**
+     * 证书有效期少于该时间时告警（毫秒）
+     */
+    private static final long EXPIRY_WARNING = TimeUnit.DAYS.toMillis(7);
+    
+    /**
+     * 平台证书来源
+     */
+    @FunctionalInterface
+    public interface CertificateSource {
+        
+        /**
+         * 加载当前有效的平台证书
+         * 
+         * @return 证书列表
+         */
+        Collection<X509Certificate> load() throws Exception;
+    }
+    
+    private final CertificateSource source;
+    private final long maxClockSkewMillis;
+    private final Map<String, Entry> certificates = new ConcurrentHashMap<>();
+    private final AtomicLong lastForcedRefresh = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    
+    /**
+     * @param source 证书来源
+     * @param refreshIntervalMillis 定时刷新间隔（毫秒）
+     * @param maxClockSkewMillis 回调时间戳与本机时间的最大允许偏差（毫秒），超出视为重放
+     */
+    public PlatformCertificateManager(CertificateSource source, long refreshIntervalMillis, long maxClockSkewMillis) {
+        this.source = source;
+        this.maxClockSkewMillis = maxClockSkewMillis;
+        refresh();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wechat-pay-cert-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 重新加载证书，新证书加入缓存，过期的证书移出缓存；加载失败时保留原有证书
+     */
+    public void refresh() {
+        Collection<X509Certificate> loaded;
+        try {
+            loaded = source.load();
+        } catch (Exception e) {
+            logger.error("加载微信支付平台证书失败，继续使用已缓存的证书: {}", certificates.keySet(), e);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (X509Certificate certificate : loaded) {
+            String serialNo = normalizeSerial(certificate.getSerialNumber().toString(16));
+            long notBefore = certificate.getNotBefore().getTime();
+            long notAfter = certificate.getNotAfter().getTime();
+            if (notAfter <= now) {
+                continue;
+            }
+            if (certificates.putIfAbsent(serialNo, new Entry(certificate.getPublicKey(), notBefore, notAfter)) == null) {
+                logger.info("加载微信支付平台证书，序列号: {}, 有效期至: {}", serialNo, certificate.getNotAfter());
+            }
+            if (notAfter - now < EXPIRY_WARNING) {
+                logger.warn("微信支付平台证书即将过期，序列号: {}, 有效期至: {}", serialNo, certificate.getNotAfter());
+            }
+        }
+        certificates.entrySet().removeIf(entry -> entry.getValue().notAfter <= now);
+        if (certificates.isEmpty()) {
+            logger.warn("没有可用的微信支付平台证书，回调验签将全部失败");
+        }
+    }
+    
+    /**
+     * 按序列号获取平台证书公钥
+     * 
+     * @param serialNo 证书序列号
+     * @return 公钥，不存在或已过期时返回null
+     */
+    public PublicKey getPublicKey(String serialNo) {
+        if (serialNo == null) {
+            return null;
+        }
+        Entry entry = certificates.get(normalizeSerial(serialNo));
+        if (entry == null) {
+            // 平台证书可能已轮换，提前刷新一次
+            long now = System.currentTimeMillis();
+            long last = lastForcedRefresh.get();
+            if (now - last >= MIN_FORCED_REFRESH_INTERVAL && lastForcedRefresh.compareAndSet(last, now)) {
+                scheduler.execute(this::refresh);
+            }
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        return now >= entry.notBefore && now < entry.notAfter ? entry.publicKey : null;
+    }
+    
+    /**
+     * 验证回调通知的签名
+     * 签名串为"时间戳\n随机串\n报文主体\n"
+     * 
+     * @param serialNo Wechatpay-Serial
+     * @param timestamp Wechatpay-Timestamp（秒）
+     * @param nonce Wechatpay-Nonce
+     * @param signature Wechatpay-Signature
+     * @param body 报文主体
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否验签通过
+     */
+    public boolean verify(String serialNo, String timestamp, String nonce, String signature,
+                          byte[] body, int offset, int length) {
+        if (timestamp == null || nonce == null || signature == null) {
+            logger.warn("回调缺少签名请求头");
+            return false;
+        }
+        try {
+            long skew = Math.abs(System.currentTimeMillis() - Long.parseLong(timestamp) * 1000);
+            if (skew > maxClockSkewMillis) {
+                logger.warn("回调时间戳超出允许范围: {}", timestamp);
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("回调时间戳格式错误: {}", timestamp);
+            return false;
+        }
+        PublicKey publicKey = getPublicKey(serialNo);
+        if (publicKey == null) {
+            logger.warn("未找到可用的微信支付平台证书，序列号: {}", serialNo);
+            return false;
+        }
+        try {
+            return SignatureUtil.verify(timestamp, nonce, body, offset, length, signature, publicKey);
+        } catch (Exception e) {
+            logger.warn("回调验签异常，序列号: {}", serialNo, e);
+            return false;
+        }
+    }
+    
+    /**
+     * 已缓存的证书序列号
+     */
+    public Collection<String> getSerialNumbers() {
+        return certificates.keySet();
+    }
+    
+    /**
+     * 停止定时刷新
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * 序列号统一为大写、去掉前导0：BigInteger转换的十六进制不带前导0，而Wechatpay-Serial请求头保留前导0
+     */
+    static String normalizeSerial(String serialNo) {
+        int start = 0;
+        while (start < serialNo.length() - 1 && serialNo.charAt(start) == '0') {
+            start++;
+        }
+        return serialNo.substring(start).toUpperCase();
+    }
+    
+    private static final class Entry {
+        
+        private final PublicKey publicKey;
+        private final long notBefore;
+        private final long notAfter;
+        
+        Entry(PublicKey publicKey, long notBefore, long notAfter) {
+            this.publicKey = publicKey;
+            this.notBefore = notBefore;
+            this.notAfter = notAfter;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.wechatpay.service;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.example.wechatpay.config.WeChatPayConfig;
 import com.example.wechatpay.constant.WeChatPayConstants;
 import com.example.wechatpay.model.request.RefundRequest;
@@ -8,17 +10,41 @@ import com.example.wechatpay.model.request.UnifiedOrderRequest;
 import com.example.wechatpay.model.response.PaymentNotifyResponse;
 import com.example.wechatpay.model.response.RefundResponse;
 import com.example.wechatpay.model.response.UnifiedOrderResponse;
+import com.example.wechatpay.util.ApiMetrics;
 import com.example.wechatpay.util.HttpClientUtil;
+import com.example.wechatpay.util.OutTradeNoGenerator;
+import com.example.wechatpay.util.PooledBuffer;
 import com.example.wechatpay.util.SignatureUtil;
+import com.example.wechatpay.util.UnifiedOrderBodyWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * 微信支付服务类
@@ -32,13 +58,72 @@ public class WeChatPayService {
     @Autowired
     private WeChatPayConfig config;
     
+    /**
+     * 每个签名线程至少处理的订单数，批量较小时直接在调用线程签名
+     */
+    private static final int MIN_SIGNS_PER_WORKER = 16;
+    
+    /**
+     * 关闭时等待回调处理队列处理完的最长时间（毫秒）
+     */
+    private static final long NOTIFY_QUEUE_SHUTDOWN_TIMEOUT = 10000;
+    
     private PrivateKey privateKey;
     
+    private volatile ExecutorService signExecutor;
+    
+    /**
+     * 持久化的回调去重存储，未提供时只在内存中去重
+     */
+    @Autowired(required = false)
+    private NotifyDeduplicator.Store notifyDedupStore;
+    
+    private NotifyDeduplicator<PaymentNotifyResponse.DecryptedResource> paymentNotifyDeduplicator;
+    
+    /**
+     * 回调处理队列，未启用时为null，回调在请求线程内同步处理
+     */
+    private NotifyQueue paymentNotifyQueue;
+    private NotifyQueue refundNotifyQueue;
+    
+    /**
+     * 订单查询缓存，未启用时为null
+     */
+    private OrderQueryCache orderQueryCache;
+    
+    private OutTradeNoGenerator outTradeNoGenerator;
+    
+    /**
+     * JSAPI、Native、APP、H5下单共用的执行器
+     */
+    private PayChannelExecutor payChannelExecutor;
+    
+    /**
+     * 平台证书管理，关闭回调验签时为null
+     */
+    private PlatformCertificateManager platformCertificateManager;
+    
     /**
      * 初始化，加载私钥
+     * 
+     * @throws IllegalStateException 开启了回调验签但没有加载到可用的平台证书
      */
     @PostConstruct
     public void init() {
+        // 按配置初始化共享的HTTP连接池
+        HttpClientUtil.configure(config);
+        outTradeNoGenerator = new OutTradeNoGenerator(config.getNodeId());
+        payChannelExecutor = createPayChannelExecutor();
+        paymentNotifyDeduplicator = new NotifyDeduplicator<>(
+                config.getNotifyDedupMaxSize(), config.getNotifyDedupTtl(), notifyDedupStore);
+        if (config.isNotifyQueueEnabled()) {
+            initNotifyQueues();
+        }
+        if (config.isOrderQueryCacheEnabled()) {
+            orderQueryCache = new OrderQueryCache(config.getOrderQueryCacheTtl(),
+                    config.getOrderQueryTerminalCacheTtl(), config.getOrderQueryCacheMaxSize());
+        }
+        
         try {
             // 如果配置了私钥内容，直接使用
             if (config.getPrivateKey() != null && !config.getPrivateKey().isEmpty()) {
@@ -46,50 +131,207 @@ public class WeChatPayService {
             }
             // 否则从文件加载
             else if (config.getPrivateKeyPath() != null && !config.getPrivateKeyPath().isEmpty()) {
-                // 这里需要读取文件内容，简化起见，假设已经读取到privateKeyContent
-                String privateKeyContent = ""; // 从文件读取
-                this.privateKey = SignatureUtil.loadPrivateKey(privateKeyContent);
+                byte[] content = Files.readAllBytes(Paths.get(config.getPrivateKeyPath()));
+                this.privateKey = SignatureUtil.loadPrivateKey(new String(content, StandardCharsets.UTF_8));
             }
             logger.info("微信支付服务初始化成功");
         } catch (Exception e) {
             logger.error("微信支付服务初始化失败", e);
         }
+        
+        // 下载平台证书需要商户私钥签名，在私钥加载之后创建
+        if (config.isNotifySignatureVerify()) {
+            initPlatformCertificates();
+        }
     }
     
     /**
-     * JSAPI支付（公众号/小程序支付）
+     * 加载平台证书，没有可用证书时启动失败
+     * 否则服务虽然能启动，但所有回调都会因验签失败被拒绝，且只留下一条告警日志
+     */
+    private void initPlatformCertificates() {
+        boolean hasCertFile = config.getWechatPayCertPath() != null && !config.getWechatPayCertPath().isEmpty();
+        if (!hasCertFile && !canDownloadPlatformCertificates()) {
+            throw new IllegalStateException("已开启回调验签（notify-signature-verify），但既没有配置平台证书文件"
+                    + "（wechat-pay-cert-path），也无法下载平台证书（需要platform-cert-auto-update、api-v3-key和商户私钥）");
+        }
+        // 首次加载在启动线程中完成，下载受HTTP连接和读取超时限制
+        platformCertificateManager = new PlatformCertificateManager(this::loadPlatformCertificates,
+                config.getPlatformCertRefreshInterval(), config.getNotifyMaxClockSkew());
+        if (platformCertificateManager.getSerialNumbers().isEmpty()) {
+            platformCertificateManager.shutdown();
+            platformCertificateManager = null;
+            throw new IllegalStateException("已开启回调验签，但没有加载到可用的微信支付平台证书，"
+                    + "请检查平台证书文件和下载平台证书接口的日志，或关闭notify-signature-verify");
+        }
+    }
+    
+    private boolean canDownloadPlatformCertificates() {
+        return config.isPlatformCertAutoUpdate() && privateKey != null
+                && config.getApiV3Key() != null && !config.getApiV3Key().isEmpty();
+    }
+    
+    /**
+     * 加载平台证书：本地证书文件和下载平台证书接口返回的证书
      * 
-     * @param request 统一下单请求
-     * @return 预支付交易会话标识
+     * @return 证书列表
      */
-    public String jsapiPay(UnifiedOrderRequest request) {
-        try {
-            // 设置必要参数
-            request.setAppId(config.getAppId());
-            request.setMchId(config.getMchId());
-            request.setNotifyUrl(config.getNotifyUrl());
-            
-            // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + WeChatPayConstants.JSAPI_PAY_URL;
-            
-            // 发送请求
-            String requestBody = JSON.toJSONString(request);
-            String response = HttpClientUtil.doPostWithSign(url, requestBody, 
-                    config.getMchId(), config.getMchSerialNo(), privateKey);
-            
-            // 解析响应
-            UnifiedOrderResponse orderResponse = HttpClientUtil.parseResponse(response, UnifiedOrderResponse.class);
-            if (orderResponse != null) {
-                logger.info("JSAPI支付下单成功，prepay_id: {}", orderResponse.getPrepayId());
-                return orderResponse.getPrepayId();
+    private Collection<X509Certificate> loadPlatformCertificates() throws Exception {
+        List<X509Certificate> certificates = new ArrayList<>();
+        if (config.getWechatPayCertPath() != null && !config.getWechatPayCertPath().isEmpty()) {
+            byte[] content = Files.readAllBytes(Paths.get(config.getWechatPayCertPath()));
+            certificates.addAll(SignatureUtil.loadCertificates(new String(content, StandardCharsets.UTF_8)));
+        }
+        if (canDownloadPlatformCertificates()) {
+            certificates.addAll(downloadPlatformCertificates());
+        }
+        return certificates;
+    }
+    
+    /**
+     * 调用下载平台证书接口，解密得到平台证书
+     * 
+     * @return 证书列表
+     */
+    private List<X509Certificate> downloadPlatformCertificates() throws Exception {
+        String url = apiV3Url() + WeChatPayConstants.CERTIFICATES_URL;
+        String response = HttpClientUtil.doGetWithSign(url, 
+                config.getMchId(), config.getMchSerialNo(), privateKey);
+        
+        JSONObject result = JSON.parseObject(response);
+        JSONArray data = result == null ? null : result.getJSONArray("data");
+        if (data == null) {
+            throw new IllegalStateException("下载平台证书失败，响应: " + response);
+        }
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            JSONObject encrypted = data.getJSONObject(i).getJSONObject("encrypt_certificate");
+            String pem = SignatureUtil.decryptAesGcm(encrypted.getString("associated_data"),
+                    encrypted.getString("nonce"), encrypted.getString("ciphertext"), config.getApiV3Key());
+            certificates.addAll(SignatureUtil.loadCertificates(pem));
+        }
+        return certificates;
+    }
+    
+    /**
+     * V3接口地址，由配置的API地址拼接而成
+     */
+    private String apiV3Url() {
+        return config.getApiBaseUrl() + "/v3";
+    }
+    
+    /**
+     * 创建下单通道执行器，请求通过共享的HttpClient签名发送，私钥在发送时读取
+     */
+    private PayChannelExecutor createPayChannelExecutor() {
+        UnifiedOrderBodyWriter bodyWriter = new UnifiedOrderBodyWriter(
+                config.getAppId(), config.getMchId(), config.getNotifyUrl());
+        PayChannelExecutor.Transport transport = new PayChannelExecutor.Transport() {
+            @Override
+            public String post(String url, byte[] body, int offset, int length) throws Exception {
+                return HttpClientUtil.doPostWithSign(url, body, offset, length,
+                        config.getMchId(), config.getMchSerialNo(), privateKey);
             }
             
-            logger.error("JSAPI支付下单失败，响应: {}", response);
-            return null;
+            @Override
+            public CompletableFuture<String> postAsync(String url, byte[] body, int offset, int length) {
+                return HttpClientUtil.doPostWithSignAsync(url, body, offset, length,
+                        config.getMchId(), config.getMchSerialNo(), privateKey);
+            }
+        };
+        return new PayChannelExecutor(apiV3Url(), bodyWriter, transport, config.getPayMaxAttempts(),
+                config.getPayRetryBackoff());
+    }
+    
+    /**
+     * 创建支付和退款回调的处理队列，创建失败时退回同步处理
+     */
+    private void initNotifyQueues() {
+        Path walDir = config.getNotifyWalDir() != null && !config.getNotifyWalDir().isEmpty()
+                ? Paths.get(config.getNotifyWalDir()) : null;
+        try {
+            paymentNotifyQueue = new NotifyQueue("payment-notify", config.getNotifyQueueCapacity(),
+                    config.getNotifyWorkerThreads(), config.getNotifyBatchSize(), config.getNotifyMaxAttempts(),
+                    config.getNotifyRetryBackoff(), walDir,
+                    notifyBatchHandler(body -> processPaymentNotify(body, 0, body.length)));
+            refundNotifyQueue = new NotifyQueue("refund-notify", config.getNotifyQueueCapacity(),
+                    config.getNotifyWorkerThreads(), config.getNotifyBatchSize(), config.getNotifyMaxAttempts(),
+                    config.getNotifyRetryBackoff(), walDir,
+                    notifyBatchHandler(body -> processRefundNotify(body, 0, body.length)));
         } catch (Exception e) {
-            logger.error("JSAPI支付异常", e);
-            return null;
+            logger.error("回调处理队列初始化失败，回调将同步处理", e);
+            if (paymentNotifyQueue != null) {
+                paymentNotifyQueue.shutdown(0);
+            }
+            paymentNotifyQueue = null;
+            refundNotifyQueue = null;
+        }
+    }
+    
+    /**
+     * 逐条处理一批通知，返回处理失败的通知交由队列稍后重新处理
+     */
+    private static NotifyQueue.BatchHandler notifyBatchHandler(Predicate<byte[]> processor) {
+        return batch -> {
+            List<byte[]> failures = new ArrayList<>();
+            for (byte[] body : batch) {
+                if (!processor.test(body)) {
+                    failures.add(body);
+                }
+            }
+            return failures;
+        };
+    }
+    
+    /**
+     * 关闭回调处理队列、平台证书刷新、下单重试调度、HTTP连接池和签名线程池
+     */
+    @PreDestroy
+    public void destroy() {
+        if (paymentNotifyQueue != null) {
+            paymentNotifyQueue.shutdown(NOTIFY_QUEUE_SHUTDOWN_TIMEOUT);
         }
+        if (refundNotifyQueue != null) {
+            refundNotifyQueue.shutdown(NOTIFY_QUEUE_SHUTDOWN_TIMEOUT);
+        }
+        if (platformCertificateManager != null) {
+            platformCertificateManager.shutdown();
+        }
+        if (payChannelExecutor != null) {
+            payChannelExecutor.shutdown();
+        }
+        HttpClientUtil.shutdown();
+        if (signExecutor != null) {
+            signExecutor.shutdown();
+        }
+    }
+    
+    /**
+     * 生成商户订单号
+     * 
+     * @return 21位数字订单号
+     */
+    public String generateOutTradeNo() {
+        return outTradeNoGenerator.next();
+    }
+    
+    /**
+     * 生成商户退款单号
+     * 
+     * @return R + 21位数字
+     */
+    public String generateOutRefundNo() {
+        return outTradeNoGenerator.next("R");
+    }
+    
+    /**
+     * JSAPI支付（公众号/小程序支付）
+     * 
+     * @param request 统一下单请求
+     * @return 预支付交易会话标识
+     */
+    public String jsapiPay(UnifiedOrderRequest request) {
+        return pay(PayChannel.JSAPI, request);
     }
     
     /**
@@ -99,33 +341,7 @@ public class WeChatPayService {
      * @return 二维码链接
      */
     public String nativePay(UnifiedOrderRequest request) {
-        try {
-            // 设置必要参数
-            request.setAppId(config.getAppId());
-            request.setMchId(config.getMchId());
-            request.setNotifyUrl(config.getNotifyUrl());
-            
-            // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + WeChatPayConstants.NATIVE_PAY_URL;
-            
-            // 发送请求
-            String requestBody = JSON.toJSONString(request);
-            String response = HttpClientUtil.doPostWithSign(url, requestBody, 
-                    config.getMchId(), config.getMchSerialNo(), privateKey);
-            
-            // 解析响应
-            UnifiedOrderResponse orderResponse = HttpClientUtil.parseResponse(response, UnifiedOrderResponse.class);
-            if (orderResponse != null) {
-                logger.info("Native支付下单成功，code_url: {}", orderResponse.getCodeUrl());
-                return orderResponse.getCodeUrl();
-            }
-            
-            logger.error("Native支付下单失败，响应: {}", response);
-            return null;
-        } catch (Exception e) {
-            logger.error("Native支付异常", e);
-            return null;
-        }
+        return pay(PayChannel.NATIVE, request);
     }
     
     /**
@@ -135,33 +351,7 @@ public class WeChatPayService {
      * @return 预支付交易会话标识
      */
     public String appPay(UnifiedOrderRequest request) {
-        try {
-            // 设置必要参数
-            request.setAppId(config.getAppId());
-            request.setMchId(config.getMchId());
-            request.setNotifyUrl(config.getNotifyUrl());
-            
-            // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + WeChatPayConstants.APP_PAY_URL;
-            
-            // 发送请求
-            String requestBody = JSON.toJSONString(request);
-            String response = HttpClientUtil.doPostWithSign(url, requestBody, 
-                    config.getMchId(), config.getMchSerialNo(), privateKey);
-            
-            // 解析响应
-            UnifiedOrderResponse orderResponse = HttpClientUtil.parseResponse(response, UnifiedOrderResponse.class);
-            if (orderResponse != null) {
-                logger.info("APP支付下单成功，prepay_id: {}", orderResponse.getPrepayId());
-                return orderResponse.getPrepayId();
-            }
-            
-            logger.error("APP支付下单失败，响应: {}", response);
-            return null;
-        } catch (Exception e) {
-            logger.error("APP支付异常", e);
-            return null;
-        }
+        return pay(PayChannel.APP, request);
     }
     
     /**
@@ -171,31 +361,21 @@ public class WeChatPayService {
      * @return 支付跳转链接
      */
     public String h5Pay(UnifiedOrderRequest request) {
+        return pay(PayChannel.H5, request);
+    }
+    
+    /**
+     * 通过下单通道执行器下单，发送失败时按配置重试，通道熔断时直接返回
+     * 
+     * @param channel 支付通道
+     * @param request 统一下单请求
+     * @return prepay_id、code_url或h5_url，失败时为null
+     */
+    private String pay(PayChannel channel, UnifiedOrderRequest request) {
         try {
-            // 设置必要参数
-            request.setAppId(config.getAppId());
-            request.setMchId(config.getMchId());
-            request.setNotifyUrl(config.getNotifyUrl());
-            
-            // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + WeChatPayConstants.H5_PAY_URL;
-            
-            // 发送请求
-            String requestBody = JSON.toJSONString(request);
-            String response = HttpClientUtil.doPostWithSign(url, requestBody, 
-                    config.getMchId(), config.getMchSerialNo(), privateKey);
-            
-            // 解析响应
-            UnifiedOrderResponse orderResponse = HttpClientUtil.parseResponse(response, UnifiedOrderResponse.class);
-            if (orderResponse != null) {
-                logger.info("H5支付下单成功，h5_url: {}", orderResponse.getH5Url());
-                return orderResponse.getH5Url();
-            }
-            
-            logger.error("H5支付下单失败，响应: {}", response);
-            return null;
+            return payChannelExecutor.execute(channel, request);
         } catch (Exception e) {
-            logger.error("H5支付异常", e);
+            logger.error("{}支付异常", channel.getDisplayName(), e);
             return null;
         }
     }
@@ -214,7 +394,7 @@ public class WeChatPayService {
             }
             
             // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + WeChatPayConstants.REFUND_URL;
+            String url = apiV3Url() + WeChatPayConstants.REFUND_URL;
             
             // 发送请求
             String requestBody = JSON.toJSONString(request);
@@ -222,10 +402,11 @@ public class WeChatPayService {
                     config.getMchId(), config.getMchSerialNo(), privateKey);
             
             // 解析响应
-            RefundResponse refundResponse = HttpClientUtil.parseResponse(response, RefundResponse.class);
+            RefundResponse refundResponse = HttpClientUtil.parseResponse(url, response, RefundResponse.class);
             if (refundResponse != null) {
                 logger.info("退款申请成功，退款单号: {}, 状态: {}", 
                         refundResponse.getOutRefundNo(), refundResponse.getStatus());
+                invalidateOrderQuery(request.getOutTradeNo());
                 return refundResponse;
             }
             
@@ -246,7 +427,7 @@ public class WeChatPayService {
     public Map<String, Object> queryOrderByTransactionId(String transactionId) {
         try {
             // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + 
+            String url = apiV3Url() + 
                     WeChatPayConstants.QUERY_ORDER_BY_ID.replace("{transaction_id}", transactionId);
             url += "?mchid=" + config.getMchId();
             
@@ -255,7 +436,7 @@ public class WeChatPayService {
                     config.getMchId(), config.getMchSerialNo(), privateKey);
             
             // 解析响应
-            Map<String, Object> result = JSON.parseObject(response, Map.class);
+            Map<String, Object> result = HttpClientUtil.parseResponse(url, response, Map.class);
             if (result != null) {
                 logger.info("查询订单成功，订单号: {}, 状态: {}", 
                         transactionId, result.get("trade_state"));
@@ -272,14 +453,29 @@ public class WeChatPayService {
     
     /**
      * 查询订单（通过商户订单号）
+     * 启用订单查询缓存时，结果按交易状态缓存，同一订单的并发查询共用一次请求
      * 
      * @param outTradeNo 商户订单号
      * @return 订单信息
      */
     public Map<String, Object> queryOrderByOutTradeNo(String outTradeNo) {
+        if (orderQueryCache == null) {
+            return loadOrderByOutTradeNo(outTradeNo);
+        }
+        return orderQueryCache.get(outTradeNo,
+                key -> CompletableFuture.completedFuture(loadOrderByOutTradeNo(key))).join();
+    }
+    
+    /**
+     * 向微信支付查询订单（通过商户订单号），不经过缓存
+     * 
+     * @param outTradeNo 商户订单号
+     * @return 订单信息
+     */
+    private Map<String, Object> loadOrderByOutTradeNo(String outTradeNo) {
         try {
             // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + 
+            String url = apiV3Url() + 
                     WeChatPayConstants.QUERY_ORDER_BY_OUT_TRADE_NO.replace("{out_trade_no}", outTradeNo);
             url += "?mchid=" + config.getMchId();
             
@@ -288,7 +484,7 @@ public class WeChatPayService {
                     config.getMchId(), config.getMchSerialNo(), privateKey);
             
             // 解析响应
-            Map<String, Object> result = JSON.parseObject(response, Map.class);
+            Map<String, Object> result = HttpClientUtil.parseResponse(url, response, Map.class);
             if (result != null) {
                 logger.info("查询订单成功，商户订单号: {}, 状态: {}", 
                         outTradeNo, result.get("trade_state"));
@@ -312,7 +508,7 @@ public class WeChatPayService {
     public RefundResponse queryRefund(String outRefundNo) {
         try {
             // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + 
+            String url = apiV3Url() + 
                     WeChatPayConstants.QUERY_REFUND_URL.replace("{out_refund_no}", outRefundNo);
             
             // 发送请求
@@ -320,7 +516,7 @@ public class WeChatPayService {
                     config.getMchId(), config.getMchSerialNo(), privateKey);
             
             // 解析响应
-            RefundResponse refundResponse = HttpClientUtil.parseResponse(response, RefundResponse.class);
+            RefundResponse refundResponse = HttpClientUtil.parseResponse(url, response, RefundResponse.class);
             if (refundResponse != null) {
                 logger.info("查询退款成功，退款单号: {}, 状态: {}", 
                         outRefundNo, refundResponse.getStatus());
@@ -344,7 +540,7 @@ public class WeChatPayService {
     public boolean closeOrder(String outTradeNo) {
         try {
             // 构建请求URL
-            String url = WeChatPayConstants.DOMAIN_API_V3 + 
+            String url = apiV3Url() + 
                     WeChatPayConstants.CLOSE_ORDER_URL.replace("{out_trade_no}", outTradeNo);
             
             // 构建请求体
@@ -357,6 +553,7 @@ public class WeChatPayService {
                     config.getMchId(), config.getMchSerialNo(), privateKey);
             
             logger.info("关闭订单成功，商户订单号: {}", outTradeNo);
+            invalidateOrderQuery(outTradeNo);
             return true;
         } catch (Exception e) {
             logger.error("关闭订单异常", e);
@@ -365,38 +562,509 @@ public class WeChatPayService {
     }
     
     /**
-     * 处理支付通知
+     * 异步JSAPI支付，结果与{@link #jsapiPay}相同，失败时完成为null
      * 
-     * @param notifyData 通知数据
-     * @return 解密后的支付结果
+     * @param request 统一下单请求
+     * @return 预支付交易会话标识
      */
-    public PaymentNotifyResponse.DecryptedResource handlePaymentNotify(String notifyData) {
+    public CompletableFuture<String> jsapiPayAsync(UnifiedOrderRequest request) {
+        return payAsync(PayChannel.JSAPI, request);
+    }
+    
+    /**
+     * 异步Native支付，结果与{@link #nativePay}相同，失败时完成为null
+     * 
+     * @param request 统一下单请求
+     * @return 二维码链接
+     */
+    public CompletableFuture<String> nativePayAsync(UnifiedOrderRequest request) {
+        return payAsync(PayChannel.NATIVE, request);
+    }
+    
+    /**
+     * 异步APP支付，结果与{@link #appPay}相同，失败时完成为null
+     * 
+     * @param request 统一下单请求
+     * @return 预支付交易会话标识
+     */
+    public CompletableFuture<String> appPayAsync(UnifiedOrderRequest request) {
+        return payAsync(PayChannel.APP, request);
+    }
+    
+    /**
+     * 异步H5支付，结果与{@link #h5Pay}相同，失败时完成为null
+     * 
+     * @param request 统一下单请求
+     * @return 支付跳转链接
+     */
+    public CompletableFuture<String> h5PayAsync(UnifiedOrderRequest request) {
+        return payAsync(PayChannel.H5, request);
+    }
+    
+    /**
+     * 异步申请退款，结果与{@link #refund}相同，失败时完成为null
+     * 
+     * @param request 退款请求
+     * @return 退款响应
+     */
+    public CompletableFuture<RefundResponse> refundAsync(RefundRequest request) {
+        // 设置退款通知地址
+        if (request.getNotifyUrl() == null) {
+            request.setNotifyUrl(config.getRefundNotifyUrl());
+        }
+        
+        String url = apiV3Url() + WeChatPayConstants.REFUND_URL;
+        String requestBody = JSON.toJSONString(request);
+        return HttpClientUtil.doPostWithSignAsync(url, requestBody,
+                        config.getMchId(), config.getMchSerialNo(), privateKey)
+                .thenApply(response -> {
+                    RefundResponse refundResponse = HttpClientUtil.parseResponse(url, response, RefundResponse.class);
+                    if (refundResponse != null) {
+                        logger.info("退款申请成功，退款单号: {}, 状态: {}", 
+                                refundResponse.getOutRefundNo(), refundResponse.getStatus());
+                        invalidateOrderQuery(request.getOutTradeNo());
+                    } else {
+                        logger.error("退款申请失败，响应: {}", response);
+                    }
+                    return refundResponse;
+                })
+                .exceptionally(e -> failed("退款申请异常", e, null));
+    }
+    
+    /**
+     * 异步查询订单（通过微信支付订单号），失败时完成为null
+     * 
+     * @param transactionId 微信支付订单号
+     * @return 订单信息
+     */
+    public CompletableFuture<Map<String, Object>> queryOrderByTransactionIdAsync(String transactionId) {
+        String url = apiV3Url() + 
+                WeChatPayConstants.QUERY_ORDER_BY_ID.replace("{transaction_id}", transactionId);
+        url += "?mchid=" + config.getMchId();
+        return queryOrderAsync(url, "订单号", transactionId);
+    }
+    
+    /**
+     * 异步查询订单（通过商户订单号），失败时完成为null
+     * 
+     * @param outTradeNo 商户订单号
+     * @return 订单信息
+     */
+    public CompletableFuture<Map<String, Object>> queryOrderByOutTradeNoAsync(String outTradeNo) {
+        if (orderQueryCache == null) {
+            return loadOrderByOutTradeNoAsync(outTradeNo);
+        }
+        return orderQueryCache.get(outTradeNo, this::loadOrderByOutTradeNoAsync);
+    }
+    
+    private CompletableFuture<Map<String, Object>> loadOrderByOutTradeNoAsync(String outTradeNo) {
+        String url = apiV3Url() + 
+                WeChatPayConstants.QUERY_ORDER_BY_OUT_TRADE_NO.replace("{out_trade_no}", outTradeNo);
+        url += "?mchid=" + config.getMchId();
+        return queryOrderAsync(url, "商户订单号", outTradeNo);
+    }
+    
+    /**
+     * 异步查询退款，失败时完成为null
+     * 
+     * @param outRefundNo 商户退款单号
+     * @return 退款信息
+     */
+    public CompletableFuture<RefundResponse> queryRefundAsync(String outRefundNo) {
+        String url = apiV3Url() + 
+                WeChatPayConstants.QUERY_REFUND_URL.replace("{out_refund_no}", outRefundNo);
+        return HttpClientUtil.doGetWithSignAsync(url, config.getMchId(), config.getMchSerialNo(), privateKey)
+                .thenApply(response -> {
+                    RefundResponse refundResponse = HttpClientUtil.parseResponse(url, response, RefundResponse.class);
+                    if (refundResponse != null) {
+                        logger.info("查询退款成功，退款单号: {}, 状态: {}", 
+                                outRefundNo, refundResponse.getStatus());
+                    } else {
+                        logger.error("查询退款失败，响应: {}", response);
+                    }
+                    return refundResponse;
+                })
+                .exceptionally(e -> failed("查询退款异常", e, null));
+    }
+    
+    /**
+     * 异步关闭订单，失败时完成为false
+     * 
+     * @param outTradeNo 商户订单号
+     * @return 是否成功
+     */
+    public CompletableFuture<Boolean> closeOrderAsync(String outTradeNo) {
+        String url = apiV3Url() + 
+                WeChatPayConstants.CLOSE_ORDER_URL.replace("{out_trade_no}", outTradeNo);
+        
+        Map<String, String> requestMap = new HashMap<>();
+        requestMap.put("mchid", config.getMchId());
+        String requestBody = JSON.toJSONString(requestMap);
+        
+        return HttpClientUtil.doPostWithSignAsync(url, requestBody,
+                        config.getMchId(), config.getMchSerialNo(), privateKey)
+                .thenApply(response -> {
+                    logger.info("关闭订单成功，商户订单号: {}", outTradeNo);
+                    invalidateOrderQuery(outTradeNo);
+                    return Boolean.TRUE;
+                })
+                .exceptionally(e -> failed("关闭订单异常", e, Boolean.FALSE));
+    }
+    
+    /**
+     * 通过下单通道执行器异步下单，失败时完成为null
+     */
+    private CompletableFuture<String> payAsync(PayChannel channel, UnifiedOrderRequest request) {
+        return payChannelExecutor.executeAsync(channel, request)
+                .exceptionally(e -> failed(channel.getDisplayName() + "支付异常", e, null));
+    }
+    
+    /**
+     * 异步查询订单
+     */
+    private CompletableFuture<Map<String, Object>> queryOrderAsync(String url, String idName, String id) {
+        return HttpClientUtil.doGetWithSignAsync(url, config.getMchId(), config.getMchSerialNo(), privateKey)
+                .thenApply(response -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> result = HttpClientUtil.parseResponse(url, response, Map.class);
+                    if (result != null) {
+                        logger.info("查询订单成功，{}: {}, 状态: {}", idName, id, result.get("trade_state"));
+                    } else {
+                        logger.error("查询订单失败，响应: {}", response);
+                    }
+                    return result;
+                })
+                .exceptionally(e -> failed("查询订单异常", e, null));
+    }
+    
+    /**
+     * 记录异步调用的异常，返回与同步方法一致的失败结果
+     */
+    private static <T> T failed(String message, Throwable e, T fallback) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        logger.error(message, cause);
+        return fallback;
+    }
+    
+    /**
+     * 接收支付通知
+     * 启用回调处理队列时只复制请求体并入队，由工作线程解密和处理业务；否则在当前线程同步处理
+     * 
+     * @param body 通知数据（UTF-8）
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否可以应答成功，返回false时应答失败让微信支付稍后重试
+     */
+    public boolean acceptPaymentNotify(byte[] body, int offset, int length) {
+        if (paymentNotifyQueue != null) {
+            if (!paymentNotifyQueue.offer(body, offset, length)) {
+                logger.warn("支付通知队列已满，通知将由微信支付重试");
+                return false;
+            }
+            return true;
+        }
+        return processPaymentNotify(body, offset, length);
+    }
+    
+    /**
+     * 各下单通道的运行指标
+     * 
+     * @return 按通道分组的请求、成功、失败、重试、拒绝数和平均耗时
+     */
+    public Map<String, Map<String, Object>> getPayChannelStats() {
+        return payChannelExecutor.getStats();
+    }
+    
+    /**
+     * 微信支付API调用指标
+     * 
+     * @return 按接口分组的请求、异常、重试、拒绝数，进行中的请求数，以及签名、网络、解析各阶段的耗时分位数
+     */
+    public Map<String, Map<String, Object>> getApiMetrics() {
+        return ApiMetrics.snapshot();
+    }
+    
+    /**
+     * 微信支付接口的熔断和并发限制状态
+     * 
+     * @return 按接口分组的熔断器状态、当前并发上限、进行中的请求数和拒绝数
+     */
+    public Map<String, Map<String, Object>> getResilienceStats() {
+        return HttpClientUtil.getResilienceStats();
+    }
+    
+    /**
+     * 验证回调通知的签名
+     * 关闭回调验签时始终返回true
+     * 
+     * @param serialNo 平台证书序列号（Wechatpay-Serial）
+     * @param timestamp 时间戳（Wechatpay-Timestamp）
+     * @param nonce 随机串（Wechatpay-Nonce）
+     * @param signature 签名（Wechatpay-Signature）
+     * @param body 通知报文
+     * @param offset 报文起始位置
+     * @param length 报文长度
+     * @return 是否验签通过
+     */
+    public boolean verifyNotifySignature(String serialNo, String timestamp, String nonce, String signature,
+                                         byte[] body, int offset, int length) {
+        if (platformCertificateManager == null) {
+            return true;
+        }
+        return platformCertificateManager.verify(serialNo, timestamp, nonce, signature, body, offset, length);
+    }
+    
+    /**
+     * 接收退款通知，处理方式同{@link #acceptPaymentNotify}
+     * 
+     * @param body 通知数据（UTF-8）
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否可以应答成功
+     */
+    public boolean acceptRefundNotify(byte[] body, int offset, int length) {
+        if (refundNotifyQueue != null) {
+            if (!refundNotifyQueue.offer(body, offset, length)) {
+                logger.warn("退款通知队列已满，通知将由微信支付重试");
+                return false;
+            }
+            return true;
+        }
+        return processRefundNotify(body, offset, length);
+    }
+    
+    /**
+     * 回调处理队列的运行指标
+     * 
+     * @return 队列名称到指标，未启用队列时为空
+     */
+    public Map<String, Map<String, Object>> getNotifyQueueStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        if (paymentNotifyQueue != null) {
+            stats.put("payment", paymentNotifyQueue.getStats());
+        }
+        if (refundNotifyQueue != null) {
+            stats.put("refund", refundNotifyQueue.getStats());
+        }
+        return stats;
+    }
+    
+    /**
+     * 解密支付通知并处理业务
+     * 
+     * 重试的通知在解密前按通知ID识别，通知ID不同但微信支付订单号和交易状态相同的通知在解密后识别，
+     * 重复的通知直接应答成功，不再处理业务。处理前先认领去重键，同一通知的副本并发到达时只处理一个，
+     * 其余的返回false稍后重试；去重记录在业务处理成功后才写入，失败时释放认领，
+     * 处理失败的通知在微信支付重试或队列重新处理时仍会完整处理一次
+     * 
+     * @return 是否处理成功（包括识别为重复），返回false时应答失败或由队列稍后重新处理
+     */
+    private boolean processPaymentNotify(byte[] body, int offset, int length) {
+        String notifyKey = null;
+        String tradeKey = null;
         try {
-            // 解析通知数据
-            PaymentNotifyResponse notify = JSON.parseObject(notifyData, PaymentNotifyResponse.class);
+            PaymentNotifyResponse notify = JSON.parseObject(body, offset, length,
+                    StandardCharsets.UTF_8, PaymentNotifyResponse.class);
+            
+            // 重复通知不再解密
+            String key = notify.getId() != null ? "notify:" + notify.getId() : null;
+            PaymentNotifyResponse.DecryptedResource processed = findProcessedNotify(key);
+            if (processed == null && !paymentNotifyDeduplicator.claim(key)) {
+                processed = findProcessedNotify(key);
+                if (processed == null) {
+                    logger.info("相同的支付通知正在处理，稍后重试，通知ID: {}", notify.getId());
+                    return false;
+                }
+            }
+            if (processed != null) {
+                logger.info("重复的支付通知，通知ID: {}, 订单号: {}", notify.getId(), processed.getOutTradeNo());
+                return true;
+            }
+            notifyKey = key;
+            
+            PooledBuffer plaintext = PooledBuffer.plaintext();
+            PaymentNotifyResponse.DecryptedResource resource = decryptPaymentNotify(notify, plaintext);
             
-            // 解密资源数据
-            String decryptedData = SignatureUtil.decryptAesGcm(
-                    notify.getResource().getAssociatedData(),
-                    notify.getResource().getNonce(),
-                    notify.getResource().getCiphertext(),
-                    config.getApiV3Key()
-            );
+            // 同一笔交易的同一状态只处理一次
+            key = tradeNotifyKey(resource);
+            processed = findProcessedNotify(key);
+            if (processed == null && !paymentNotifyDeduplicator.claim(key)) {
+                processed = findProcessedNotify(key);
+                if (processed == null) {
+                    logger.info("同一交易状态的支付通知正在处理，稍后重试，订单号: {}", resource.getOutTradeNo());
+                    return false;
+                }
+            }
+            if (processed != null) {
+                logger.info("重复的支付通知，通知ID: {}, 订单号: {}", notify.getId(), processed.getOutTradeNo());
+                paymentNotifyDeduplicator.put(notifyKey, processed, null);
+                return true;
+            }
+            tradeKey = key;
+            String storedValue = notifyDedupStore != null ? plaintext.toString(StandardCharsets.UTF_8) : null;
             
-            // 解析解密后的数据
-            PaymentNotifyResponse.DecryptedResource resource = 
-                    JSON.parseObject(decryptedData, PaymentNotifyResponse.DecryptedResource.class);
+            // 订单状态已变化，轮询方下次查询时获取最新状态
+            invalidateOrderQuery(resource.getOutTradeNo());
+            if ("SUCCESS".equals(resource.getTradeState())) {
+                // 支付成功，更新订单状态
+                logger.info("订单支付成功: {}", resource.getOutTradeNo());
+                // TODO: 更新订单状态，发货等业务逻辑
+            }
             
-            logger.info("处理支付通知成功，订单号: {}, 交易状态: {}", 
+            paymentNotifyDeduplicator.put(tradeKey, resource, storedValue);
+            paymentNotifyDeduplicator.put(notifyKey, resource, storedValue);
+            logger.info("处理支付通知成功，订单号: {}, 交易状态: {}",
                     resource.getOutTradeNo(), resource.getTradeState());
+            return true;
+        } catch (Exception e) {
+            logger.error("处理支付通知异常", e);
+            return false;
+        } finally {
+            // 成功时记录已写入，失败时释放后重试的通知可以再次认领
+            paymentNotifyDeduplicator.release(tradeKey);
+            paymentNotifyDeduplicator.release(notifyKey);
+        }
+    }
+    
+    /**
+     * 批量对账待支付订单
+     * 以配置的并发数和速率查询订单状态，不经过订单查询缓存；查询到状态变化时使缓存失效并立即回调
+     * 
+     * @param outTradeNos 待对账的商户订单号
+     * @param listener 结果接收者
+     * @return 本次对账的统计
+     */
+    public OrderReconciler.Report reconcileOrders(Iterator<String> outTradeNos,
+                                                  OrderReconciler.Listener listener) throws InterruptedException {
+        OrderReconciler reconciler = new OrderReconciler(this::loadOrderByOutTradeNoAsync,
+                config.getReconcileConcurrency(), config.getReconcileRatePerSecond(),
+                config.getReconcileMaxAttempts(), config.getReconcileBackoff(), config.getReconcileMaxBackoff());
+        return reconciler.run(outTradeNos, new OrderReconciler.Listener() {
+            @Override
+            public void onStateChanged(String outTradeNo, String tradeState, Map<String, Object> order) {
+                invalidateOrderQuery(outTradeNo);
+                listener.onStateChanged(outTradeNo, tradeState, order);
+            }
             
-            return resource;
+            @Override
+            public void onUnchanged(String outTradeNo, String tradeState) {
+                listener.onUnchanged(outTradeNo, tradeState);
+            }
+            
+            @Override
+            public void onFailed(String outTradeNo, Throwable cause, Map<String, Object> response) {
+                listener.onFailed(outTradeNo, cause, response);
+            }
+        });
+    }
+    
+    /**
+     * 使订单查询缓存失效
+     * 
+     * @param outTradeNo 商户订单号
+     */
+    public void invalidateOrderQuery(String outTradeNo) {
+        if (orderQueryCache != null) {
+            orderQueryCache.invalidate(outTradeNo);
+        }
+    }
+    
+    /**
+     * 处理退款通知
+     */
+    private boolean processRefundNotify(byte[] body, int offset, int length) {
+        logger.info("处理退款通知，长度: {}", length);
+        // TODO: 处理退款通知，解密数据，更新退款状态
+        return true;
+    }
+    
+    /**
+     * 处理支付通知
+     * 
+     * @param notifyData 通知数据
+     * @return 解密后的支付结果
+     */
+    public PaymentNotifyResponse.DecryptedResource handlePaymentNotify(String notifyData) {
+        byte[] bytes = notifyData.getBytes(StandardCharsets.UTF_8);
+        return handlePaymentNotify(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * 处理支付通知
+     * 直接从字节解析通知报文，解密到线程复用的缓冲区后再解析支付结果，全程不生成报文和明文字符串
+     * 
+     * 只解析和解密，不去重也不处理业务；回调接口收到的通知应交给{@link #acceptPaymentNotify}
+     * 
+     * @param body 通知数据（UTF-8）
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 解密后的支付结果
+     */
+    public PaymentNotifyResponse.DecryptedResource handlePaymentNotify(byte[] body, int offset, int length) {
+        try {
+            // 解析通知数据
+            PaymentNotifyResponse notify = JSON.parseObject(body, offset, length, 
+                    StandardCharsets.UTF_8, PaymentNotifyResponse.class);
+            return decryptPaymentNotify(notify, PooledBuffer.plaintext());
         } catch (Exception e) {
             logger.error("处理支付通知异常", e);
             return null;
         }
     }
     
+    /**
+     * 解密通知中的资源数据并解析为支付结果
+     * 
+     * @param notify 通知报文
+     * @param plaintext 存放明文的缓冲区
+     * @return 支付结果
+     */
+    private PaymentNotifyResponse.DecryptedResource decryptPaymentNotify(PaymentNotifyResponse notify,
+                                                                         PooledBuffer plaintext) throws Exception {
+        SignatureUtil.decryptAesGcm(
+                notify.getResource().getAssociatedData(),
+                notify.getResource().getNonce(),
+                notify.getResource().getCiphertext(),
+                config.getApiV3Key(),
+                plaintext
+        );
+        return JSON.parseObject(plaintext.array(), 0, plaintext.length(), StandardCharsets.UTF_8,
+                PaymentNotifyResponse.DecryptedResource.class);
+    }
+    
+    /**
+     * 查询已处理的支付通知，内存未命中时查询持久化存储
+     * 
+     * @param key 去重键
+     * @return 首次处理的结果，未处理过时返回null
+     */
+    private PaymentNotifyResponse.DecryptedResource findProcessedNotify(String key) {
+        PaymentNotifyResponse.DecryptedResource resource = paymentNotifyDeduplicator.get(key);
+        if (resource != null) {
+            return resource;
+        }
+        String stored = paymentNotifyDeduplicator.getStored(key);
+        if (stored == null) {
+            return null;
+        }
+        resource = JSON.parseObject(stored, PaymentNotifyResponse.DecryptedResource.class);
+        paymentNotifyDeduplicator.put(key, resource, null);
+        return resource;
+    }
+    
+    /**
+     * 支付结果的去重键：微信支付订单号（缺失时使用商户订单号）加交易状态
+     */
+    private static String tradeNotifyKey(PaymentNotifyResponse.DecryptedResource resource) {
+        if (resource.getTransactionId() != null) {
+            return "transaction:" + resource.getTransactionId() + ":" + resource.getTradeState();
+        }
+        if (resource.getOutTradeNo() != null) {
+            return "out_trade_no:" + resource.getOutTradeNo() + ":" + resource.getTradeState();
+        }
+        return null;
+    }
+    
     /**
      * 生成JSAPI支付参数
      * 用于前端调起支付
@@ -405,19 +1073,57 @@ public class WeChatPayService {
      * @return 支付参数
      */
     public Map<String, String> generateJsapiPayParams(String prepayId) {
+        return buildJsapiPayParams(prepayId, System.currentTimeMillis() / 1000, new StringBuilder(128));
+    }
+    
+    /**
+     * 生成APP支付参数
+     * 用于APP调起支付
+     * 
+     * @param prepayId 预支付交易会话标识
+     * @return 支付参数
+     */
+    public Map<String, String> generateAppPayParams(String prepayId) {
+        return buildAppPayParams(prepayId, System.currentTimeMillis() / 1000, new StringBuilder(128));
+    }
+    
+    /**
+     * 批量生成JSAPI支付参数
+     * 用于拼团等一次创建大量订单的场景，签名分摊到签名线程池并行执行
+     * 
+     * @param prepayIds 预支付交易会话标识列表
+     * @return 支付参数列表，与prepayIds一一对应，生成失败的位置为null
+     */
+    public List<Map<String, String>> generateJsapiPayParamsBatch(List<String> prepayIds) {
+        return signBatch(prepayIds, this::buildJsapiPayParams);
+    }
+    
+    /**
+     * 批量生成APP支付参数
+     * 
+     * @param prepayIds 预支付交易会话标识列表
+     * @return 支付参数列表，与prepayIds一一对应，生成失败的位置为null
+     */
+    public List<Map<String, String>> generateAppPayParamsBatch(List<String> prepayIds) {
+        return signBatch(prepayIds, this::buildAppPayParams);
+    }
+    
+    private Map<String, String> buildJsapiPayParams(String prepayId, long timestamp, StringBuilder buffer) {
         try {
             Map<String, String> params = new HashMap<>();
             params.put("appId", config.getAppId());
-            params.put("timeStamp", String.valueOf(System.currentTimeMillis() / 1000));
+            params.put("timeStamp", String.valueOf(timestamp));
             params.put("nonceStr", SignatureUtil.generateNonceStr());
             params.put("package", "prepay_id=" + prepayId);
             params.put("signType", "RSA");
             
             // 生成签名
-            String message = params.get("appId") + "\n"
-                    + params.get("timeStamp") + "\n"
-                    + params.get("nonceStr") + "\n"
-                    + params.get("package") + "\n";
+            buffer.setLength(0);
+            String message = buffer.append(params.get("appId")).append('\n')
+                    .append(params.get("timeStamp")).append('\n')
+                    .append(params.get("nonceStr")).append('\n')
+                    .append(params.get("package")).append('\n')
+                    .toString();
             
             String signature = SignatureUtil.sign(message, privateKey);
             params.put("paySign", signature);
@@ -429,14 +1135,7 @@ public class WeChatPayService {
         }
     }
     
-    /**
-     * 生成APP支付参数
-     * 用于APP调起支付
-     * 
-     * @param prepayId 预支付交易会话标识
-     * @return 支付参数
-     */
-    public Map<String, String> generateAppPayParams(String prepayId) {
+    private Map<String, String> buildAppPayParams(String prepayId, long timestamp, StringBuilder buffer) {
         try {
             Map<String, String> params = new HashMap<>();
             params.put("appid", config.getAppId());
@@ -444,13 +1143,15 @@ public class WeChatPayService {
             params.put("prepayid", prepayId);
             params.put("package", "Sign=WXPay");
             params.put("noncestr", SignatureUtil.generateNonceStr());
-            params.put("timestamp", String.valueOf(System.currentTimeMillis() / 1000));
+            params.put("timestamp", String.valueOf(timestamp));
             
             // 生成签名
-            String message = params.get("appid") + "\n"
-                    + params.get("timestamp") + "\n"
-                    + params.get("noncestr") + "\n"
-                    + params.get("prepayid") + "\n";
+            buffer.setLength(0);
+            String message = buffer.append(params.get("appid")).append('\n')
+                    .append(params.get("timestamp")).append('\n')
+                    .append(params.get("noncestr")).append('\n')
+                    .append(params.get("prepayid")).append('\n')
+                    .toString();
             
             String signature = SignatureUtil.sign(message, privateKey);
             params.put("sign", signature);
@@ -461,4 +1162,79 @@ public class WeChatPayService {
             return null;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 将批量签名按连续区间拆分给签名线程，每个线程复用自己的StringBuilder和SignatureUtil中的签名对象，
+     * 结果直接写入对应下标，保持与输入相同的顺序
+     */
+    private List<Map<String, String>> signBatch(List<String> prepayIds, PayParamsBuilder builder) {
+        int size = prepayIds.size();
+        long timestamp = System.currentTimeMillis() / 1000;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<String, String>[] results = new Map[size];
+        
+        int workers = Math.min(Math.max(config.getSignThreads(), 1), (size + MIN_SIGNS_PER_WORKER - 1) / MIN_SIGNS_PER_WORKER);
+        if (workers <= 1) {
+            signRange(prepayIds, 0, size, timestamp, builder, results);
+            return Arrays.asList(results);
+        }
+        
+        ExecutorService executor = signExecutor();
+        List<Future<?>> futures = new ArrayList<>(workers - 1);
+        int chunk = (size + workers - 1) / workers;
+        for (int from = chunk; from < size; from += chunk) {
+            int start = from;
+            int end = Math.min(from + chunk, size);
+            futures.add(executor.submit(() -> signRange(prepayIds, start, end, timestamp, builder, results)));
+        }
+        // 调用线程处理第一段
+        signRange(prepayIds, 0, Math.min(chunk, size), timestamp, builder, results);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("批量生成支付参数被中断");
+                break;
+            } catch (ExecutionException e) {
+                logger.error("批量生成支付参数异常", e.getCause());
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    private static void signRange(List<String> prepayIds, int from, int to, long timestamp,
+                                  PayParamsBuilder builder, Map<String, String>[] results) {
+        StringBuilder buffer = new StringBuilder(128);
+        for (int i = from; i < to; i++) {
+            results[i] = builder.build(prepayIds.get(i), timestamp, buffer);
+        }
+    }
+    
+    private ExecutorService signExecutor() {
+        ExecutorService executor = signExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = signExecutor;
+                if (executor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    executor = Executors.newFixedThreadPool(Math.max(config.getSignThreads(), 1), runnable -> {
+                        Thread thread = new Thread(runnable, "wechat-pay-sign-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    signExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * 生成单个订单的支付参数
+     */
+    @FunctionalInterface
+    private interface PayParamsBuilder {
+        Map<String, String> build(String prepayId, long timestamp, StringBuilder buffer);
+    }
+}
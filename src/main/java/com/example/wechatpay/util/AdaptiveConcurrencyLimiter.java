@@ -0,0 +1,110 @@
+package com.example.wechatpay.util;
+
+/**
+ * 自适应并发数限制（AIMD）
+ * 请求成功且耗时在阈值以内时，并发上限每经过约一个上限数量的请求加1；
+ * 请求失败或耗时超过阈值时，上限乘以退让系数。网关变慢时上限迅速收缩，多出的请求直接拒绝，
+ * 不再占着线程排队等待；网关恢复后上限逐步回升
+ * 
+ * 同一批并发请求一起变慢时只收缩一次：只有在上次收缩之后才开始的请求才会再次触发收缩
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    
+    /**
+     * @param initialLimit 初始并发上限
+     * @param minLimit 最小并发上限
+     * @param maxLimit 最大并发上限
+     * @param latencyThresholdMillis 耗时阈值（毫秒），超过视为网关过载
+     * @param backoffRatio 过载时上限的乘数，取值(0, 1)
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("invalid limit range: " + minLimit + "-" + maxLimit);
+        }
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1): " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+    
+    /**
+     * 尝试占用一个并发名额，成功时调用方必须在请求结束后调用{@link #onSuccess}、{@link #onFailure}或{@link #release}
+     * 
+     * @return 是否成功
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+    
+    /**
+     * 请求完成，按耗时调整上限
+     * 
+     * @param startNanos 请求开始时的System.nanoTime()
+     */
+    public synchronized void onSuccess(long startNanos) {
+        inFlight--;
+        if (System.nanoTime() - startNanos > latencyThresholdNanos) {
+            decrease(startNanos);
+        } else if (inFlight + 1 >= limit / 2) {
+            // 只有上限确实被用到一半以上时才增加，空闲时上限不会无限增长
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+    
+    /**
+     * 请求失败（网络异常、超时、5xx），收缩上限
+     * 
+     * @param startNanos 请求开始时的System.nanoTime()
+     */
+    public synchronized void onFailure(long startNanos) {
+        inFlight--;
+        decrease(startNanos);
+    }
+    
+    /**
+     * 请求没有真正发出，只归还名额
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+    
+    private void decrease(long startNanos) {
+        if (startNanos - lastDecreaseNanos >= 0) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecreaseNanos = System.nanoTime();
+        }
+    }
+    
+    /**
+     * 当前并发上限
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    /**
+     * 当前进行中的请求数
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
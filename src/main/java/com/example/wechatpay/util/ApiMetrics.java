@@ -0,0 +1,429 @@
+package com.example.wechatpay.util;
+
+import com.example.wechatpay.constant.WeChatPayConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 微信支付API调用指标
+ * 按接口（去掉订单号等路径参数后的路径模板）分别统计签名、网络、解析三个阶段的耗时直方图，
+ * 以及请求数、异常数、HTTP错误数、重试数、拒绝数和当前进行中的请求数
+ * 
+ * 每个接口在首次调用时注册一个JMX MXBean（com.example.wechatpay:type=ApiMetrics,endpoint=...），
+ * 同样的数据也可以通过{@link #snapshot()}取出，由HTTP接口返回
+ */
+public final class ApiMetrics {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ApiMetrics.class);
+    
+    /**
+     * 最多单独统计的接口数，超出的归入"other"，避免路径参数未能识别时指标无限增长
+     */
+    private static final int MAX_ENDPOINTS = 64;
+    
+    private static final String OTHER = "other";
+    
+    private static final String JMX_DOMAIN = "com.example.wechatpay";
+    
+    /**
+     * 调用阶段
+     */
+    public enum Phase {
+        /**
+         * 生成随机串并计算签名
+         */
+        SIGN,
+        /**
+         * 发送请求并读取完整应答
+         */
+        NETWORK,
+        /**
+         * 解析应答JSON
+         */
+        PARSE
+    }
+    
+    /**
+     * 单个接口指标的JMX视图，耗时单位均为毫秒
+     */
+    public interface EndpointMXBean {
+        
+        long getRequests();
+        
+        long getErrors();
+        
+        long getHttpErrors();
+        
+        long getRetries();
+        
+        long getRejected();
+        
+        int getInFlight();
+        
+        double getSignMeanMillis();
+        
+        double getSignP99Millis();
+        
+        double getNetworkMeanMillis();
+        
+        double getNetworkP50Millis();
+        
+        double getNetworkP90Millis();
+        
+        double getNetworkP99Millis();
+        
+        double getNetworkP999Millis();
+        
+        double getNetworkMaxMillis();
+        
+        double getParseMeanMillis();
+        
+        double getParseP99Millis();
+        
+        void reset();
+    }
+    
+    private static final List<String[]> TEMPLATES = new ArrayList<>();
+    private static final Map<String, Endpoint> ENDPOINTS = new ConcurrentHashMap<>();
+    
+    static {
+        String[] paths = {
+                WeChatPayConstants.NATIVE_PAY_URL, WeChatPayConstants.JSAPI_PAY_URL,
+                WeChatPayConstants.APP_PAY_URL, WeChatPayConstants.H5_PAY_URL,
+                WeChatPayConstants.QUERY_ORDER_BY_ID, WeChatPayConstants.QUERY_ORDER_BY_OUT_TRADE_NO,
+                WeChatPayConstants.CLOSE_ORDER_URL, WeChatPayConstants.REFUND_URL,
+                WeChatPayConstants.QUERY_REFUND_URL, WeChatPayConstants.TRADE_BILL_URL,
+                WeChatPayConstants.FUND_FLOW_BILL_URL, WeChatPayConstants.CERTIFICATES_URL
+        };
+        for (String path : paths) {
+            TEMPLATES.add(("/v3" + path).split("/"));
+        }
+    }
+    
+    private ApiMetrics() {
+    }
+    
+    /**
+     * 获取URL对应接口的指标
+     * 
+     * @param url 请求URL，可以带域名和查询参数
+     * @return 接口指标
+     */
+    public static Endpoint forUrl(String url) {
+        // 下单等没有路径参数的接口，路径本身就是接口名，直接命中
+        String path = pathOf(url);
+        Endpoint endpoint = ENDPOINTS.get(path);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        String name = templateOf(path);
+        endpoint = ENDPOINTS.get(name);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        if (ENDPOINTS.size() >= MAX_ENDPOINTS) {
+            name = OTHER;
+        }
+        return ENDPOINTS.computeIfAbsent(name, ApiMetrics::register);
+    }
+    
+    /**
+     * 全部接口的指标
+     * 
+     * @return 按接口名排序的指标
+     */
+    public static Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        ENDPOINTS.forEach((name, endpoint) -> snapshot.put(name, endpoint.toMap()));
+        return snapshot;
+    }
+    
+    /**
+     * 清空全部接口的指标
+     */
+    public static void reset() {
+        ENDPOINTS.values().forEach(Endpoint::reset);
+    }
+    
+    /**
+     * 去掉域名、路径前缀和查询参数，按已知的接口路径模板替换路径参数
+     */
+    static String endpointName(String url) {
+        return templateOf(pathOf(url));
+    }
+    
+    private static String pathOf(String url) {
+        int start = 0;
+        int scheme = url.indexOf("://");
+        if (scheme >= 0) {
+            start = url.indexOf('/', scheme + 3);
+            if (start < 0) {
+                return "/";
+            }
+        }
+        int end = url.indexOf('?', start);
+        return end < 0 && start == 0 ? url : url.substring(start, end < 0 ? url.length() : end);
+    }
+    
+    private static String templateOf(String path) {
+        String[] segments = path.split("/");
+        for (String[] template : TEMPLATES) {
+            if (matches(template, segments)) {
+                return String.join("/", template);
+            }
+        }
+        return path;
+    }
+    
+    /**
+     * 模板按路径末尾匹配，api-base-url带路径前缀（如挂在/wxpay下的网关）时仍能识别为同一接口
+     */
+    private static boolean matches(String[] template, String[] segments) {
+        int offset = segments.length - template.length;
+        if (offset < 0) {
+            return false;
+        }
+        // 模板第一段是开头"/"之前的空串，不参与比较
+        for (int i = 1; i < template.length; i++) {
+            if (!template[i].startsWith("{") && !template[i].equals(segments[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static Endpoint register(String name) {
+        Endpoint endpoint = new Endpoint(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=ApiMetrics,endpoint=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(endpoint, objectName);
+            }
+        } catch (Exception e) {
+            logger.warn("注册接口指标MBean失败: {}", name, e);
+        }
+        return endpoint;
+    }
+    
+    /**
+     * 单个接口的指标
+     */
+    public static final class Endpoint implements EndpointMXBean {
+        
+        private final String name;
+        private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder httpErrors = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        
+        private Endpoint(String name) {
+            this.name = name;
+            for (Phase phase : Phase.values()) {
+                latencies.put(phase, new LatencyHistogram());
+            }
+        }
+        
+        /**
+         * 接口名，即路径模板
+         */
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * 记录某个阶段的耗时
+         * 
+         * @param phase 阶段
+         * @param nanos 耗时（纳秒）
+         */
+        public void record(Phase phase, long nanos) {
+            latencies.get(phase).record(nanos);
+        }
+        
+        /**
+         * 请求开始发送
+         */
+        public void requestStarted() {
+            requests.increment();
+            inFlight.incrementAndGet();
+        }
+        
+        /**
+         * 请求结束（无论成功与否）
+         * 
+         * @param networkNanos 发送到读完应答的耗时（纳秒）
+         */
+        public void requestFinished(long networkNanos) {
+            inFlight.decrementAndGet();
+            latencies.get(Phase.NETWORK).record(networkNanos);
+        }
+        
+        /**
+         * 请求异常（网络错误、超时等）
+         */
+        public void recordError() {
+            errors.increment();
+        }
+        
+        /**
+         * 应答状态码为4xx或5xx
+         */
+        public void recordHttpError() {
+            httpErrors.increment();
+        }
+        
+        /**
+         * 请求被重试
+         */
+        public void recordRetry() {
+            retries.increment();
+        }
+        
+        /**
+         * 请求没有发出就被拒绝（请求数超限、熔断等）
+         */
+        public void recordRejected() {
+            rejected.increment();
+        }
+        
+        /**
+         * 某个阶段的耗时直方图
+         * 
+         * @param phase 阶段
+         * @return 直方图
+         */
+        public LatencyHistogram getLatency(Phase phase) {
+            return latencies.get(phase);
+        }
+        
+        @Override
+        public long getRequests() {
+            return requests.sum();
+        }
+        
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+        
+        @Override
+        public long getHttpErrors() {
+            return httpErrors.sum();
+        }
+        
+        @Override
+        public long getRetries() {
+            return retries.sum();
+        }
+        
+        @Override
+        public long getRejected() {
+            return rejected.sum();
+        }
+        
+        @Override
+        public int getInFlight() {
+            return inFlight.get();
+        }
+        
+        @Override
+        public double getSignMeanMillis() {
+            return latencies.get(Phase.SIGN).getMeanMillis();
+        }
+        
+        @Override
+        public double getSignP99Millis() {
+            return latencies.get(Phase.SIGN).getPercentileMillis(0.99);
+        }
+        
+        @Override
+        public double getNetworkMeanMillis() {
+            return latencies.get(Phase.NETWORK).getMeanMillis();
+        }
+        
+        @Override
+        public double getNetworkP50Millis() {
+            return latencies.get(Phase.NETWORK).getPercentileMillis(0.5);
+        }
+        
+        @Override
+        public double getNetworkP90Millis() {
+            return latencies.get(Phase.NETWORK).getPercentileMillis(0.9);
+        }
+        
+        @Override
+        public double getNetworkP99Millis() {
+            return latencies.get(Phase.NETWORK).getPercentileMillis(0.99);
+        }
+        
+        @Override
+        public double getNetworkP999Millis() {
+            return latencies.get(Phase.NETWORK).getPercentileMillis(0.999);
+        }
+        
+        @Override
+        public double getNetworkMaxMillis() {
+            return latencies.get(Phase.NETWORK).getMaxMillis();
+        }
+        
+        @Override
+        public double getParseMeanMillis() {
+            return latencies.get(Phase.PARSE).getMeanMillis();
+        }
+        
+        @Override
+        public double getParseP99Millis() {
+            return latencies.get(Phase.PARSE).getPercentileMillis(0.99);
+        }
+        
+        @Override
+        public void reset() {
+            latencies.values().forEach(LatencyHistogram::reset);
+            requests.reset();
+            errors.reset();
+            httpErrors.reset();
+            retries.reset();
+            rejected.reset();
+        }
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", getRequests());
+            map.put("errors", getErrors());
+            map.put("httpErrors", getHttpErrors());
+            map.put("retries", getRetries());
+            map.put("rejected", getRejected());
+            map.put("inFlight", getInFlight());
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = latencies.get(phase);
+                Map<String, Object> latency = new LinkedHashMap<>();
+                latency.put("count", histogram.getCount());
+                latency.put("mean", histogram.getMeanMillis());
+                latency.put("p50", histogram.getPercentileMillis(0.5));
+                latency.put("p90", histogram.getPercentileMillis(0.9));
+                latency.put("p99", histogram.getPercentileMillis(0.99));
+                latency.put("p999", histogram.getPercentileMillis(0.999));
+                latency.put("max", histogram.getMaxMillis());
+                map.put(phase.name().toLowerCase() + "Millis", latency);
+            }
+            return map;
+        }
+    }
+}
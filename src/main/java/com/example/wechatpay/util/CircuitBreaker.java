@@ -0,0 +1,151 @@
+package com.example.wechatpay.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 熔断器
+ * 连续失败达到阈值后打开，打开期间的请求直接拒绝；经过打开时间后进入半开状态，只放行一个探测请求，
+ * 探测成功则关闭，失败则重新打开
+ * 
+ * 只有探测请求的结果能让熔断器离开打开/半开状态：打开之前就已发出的慢请求在打开之后才返回时，
+ * 其结果被忽略，不会绕过打开时间提前关闭熔断器
+ */
+public class CircuitBreaker {
+    
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final int failureThreshold;
+    private final long openMillis;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(State.CLOSED, 0, 0));
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    
+    /**
+     * @param failureThreshold 打开熔断的连续失败次数
+     * @param openMillis 打开后多久进入半开状态（毫秒）
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+    
+    /**
+     * 判断是否允许发起请求，允许时调用方必须在请求结束后调用{@link #onSuccess}、{@link #onFailure}或{@link #release}
+     * 
+     * @return 是否允许
+     */
+    public boolean tryAcquire() {
+        Snapshot current = snapshot.get();
+        if (current.state == State.CLOSED) {
+            return true;
+        }
+        if (current.state == State.OPEN && System.currentTimeMillis() - current.openedAt >= openMillis) {
+            // 只有一个线程能把状态切到半开，由它发起探测请求
+            return snapshot.compareAndSet(current, current.with(State.HALF_OPEN));
+        }
+        return false;
+    }
+    
+    /**
+     * 记录一次成功
+     * 
+     * @param startNanos 请求在{@link #tryAcquire}之后开始时的System.nanoTime()
+     */
+    public void onSuccess(long startNanos) {
+        Snapshot current = snapshot.get();
+        if (current.state == State.CLOSED) {
+            consecutiveFailures.set(0);
+        } else if (current.state == State.HALF_OPEN && !current.admittedBeforeOpen(startNanos)
+                && snapshot.compareAndSet(current, current.with(State.CLOSED))) {
+            consecutiveFailures.set(0);
+        }
+    }
+    
+    /**
+     * 记录一次失败
+     * 
+     * @param startNanos 请求在{@link #tryAcquire}之后开始时的System.nanoTime()
+     */
+    public void onFailure(long startNanos) {
+        Snapshot current = snapshot.get();
+        if (current.state == State.CLOSED) {
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                open(current);
+            }
+        } else if (current.state == State.HALF_OPEN && !current.admittedBeforeOpen(startNanos)) {
+            open(current);
+        }
+    }
+    
+    /**
+     * 状态和打开时间作为一个整体切换，只有切换成功的线程写入新的打开时间；
+     * 读到旧状态的迟到结果切换失败，不会改动半开探测所依据的打开时间
+     */
+    private void open(Snapshot expected) {
+        snapshot.compareAndSet(expected,
+                new Snapshot(State.OPEN, System.currentTimeMillis(), System.nanoTime()));
+    }
+    
+    /**
+     * 请求没有真正发出（如被本地限流拒绝）时调用，不计入成功或失败；半开状态下交还探测机会
+     */
+    public void release() {
+        Snapshot current = snapshot.get();
+        if (current.state == State.HALF_OPEN) {
+            snapshot.compareAndSet(current, current.with(State.OPEN));
+        }
+    }
+    
+    /**
+     * 距离进入半开状态还有多久（毫秒），未打开时为0
+     */
+    public long getRemainingOpenMillis() {
+        Snapshot current = snapshot.get();
+        if (current.state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openMillis - (System.currentTimeMillis() - current.openedAt));
+    }
+    
+    /**
+     * 当前状态
+     */
+    public State getState() {
+        return snapshot.get().state;
+    }
+    
+    /**
+     * 状态及最近一次打开的时间，不可变，每次状态切换都替换为新对象
+     */
+    private static final class Snapshot {
+        
+        private final State state;
+        private final long openedAt;
+        private final long openedAtNanos;
+        
+        Snapshot(State state, long openedAt, long openedAtNanos) {
+            this.state = state;
+            this.openedAt = openedAt;
+            this.openedAtNanos = openedAtNanos;
+        }
+        
+        Snapshot with(State newState) {
+            return new Snapshot(newState, openedAt, openedAtNanos);
+        }
+        
+        /**
+         * 打开之后只有探测请求会被放行，早于打开时间开始的请求都是打开之前发出的
+         */
+        boolean admittedBeforeOpen(long startNanos) {
+            return startNanos - openedAtNanos < 0;
+        }
+    }
+}
@@ -1,29 +1,197 @@
 package com.example.wechatpay.util;
 
 import com.alibaba.fastjson.JSON;
+import com.example.wechatpay.config.WeChatPayConfig;
+import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * HTTP客户端工具类
  * 用于发送微信支付API请求
+ * 
+ * 所有请求共用一个基于连接池的HttpClient，连接保持长连接并复用，
+ * 避免每次请求都重新进行TCP和TLS握手
+ * 
+ * 每个接口各有一个熔断器和一个自适应并发上限：网关持续出错时熔断，变慢时收缩并发上限，
+ * 超出的请求以RejectedExecutionException立即失败，而不是占着请求线程等待连接或应答
  */
 public class HttpClientUtil {
     
     private static final Logger logger = LoggerFactory.getLogger(HttpClientUtil.class);
     
+    private static volatile CloseableHttpClient httpClient = createHttpClient(new WeChatPayConfig());
+    
+    /**
+     * 非阻塞HttpClient的配置，异步客户端在首次异步请求时才创建
+     */
+    private static volatile WeChatPayConfig asyncConfig = new WeChatPayConfig();
+    private static volatile AsyncTransport asyncTransport;
+    
+    /**
+     * 熔断和并发限制的配置，以及按接口名保存的状态
+     */
+    private static volatile WeChatPayConfig resilienceConfig = new WeChatPayConfig();
+    private static final Map<String, EndpointGuard> GUARDS = new ConcurrentHashMap<>();
+    
+    /**
+     * 按配置重建共享的HttpClient（连接池大小、长连接、空闲回收和超时时间）
+     * 通常在应用启动时调用一次，旧的客户端会被关闭
+     * 
+     * @param config 微信支付配置
+     */
+    public static synchronized void configure(WeChatPayConfig config) {
+        CloseableHttpClient previous = httpClient;
+        httpClient = createHttpClient(config);
+        closeQuietly(previous);
+        
+        AsyncTransport previousAsync = asyncTransport;
+        asyncConfig = config;
+        asyncTransport = null;
+        if (previousAsync != null) {
+            closeQuietly(previousAsync.client);
+        }
+        
+        resilienceConfig = config;
+        GUARDS.clear();
+        logger.info("HTTP连接池已配置，最大连接数: {}, 每路由最大连接数: {}",
+                config.getMaxConnTotal(), config.getMaxConnPerRoute());
+    }
+    
+    /**
+     * 关闭共享的HttpClient，释放连接池和空闲连接回收线程
+     */
+    public static synchronized void shutdown() {
+        closeQuietly(httpClient);
+        if (asyncTransport != null) {
+            closeQuietly(asyncTransport.client);
+            asyncTransport = null;
+        }
+    }
+    
+    private static AsyncTransport asyncTransport() {
+        AsyncTransport transport = asyncTransport;
+        if (transport == null) {
+            synchronized (HttpClientUtil.class) {
+                transport = asyncTransport;
+                if (transport == null) {
+                    transport = new AsyncTransport(createAsyncHttpClient(asyncConfig), asyncConfig.getAsyncMaxInFlight());
+                    asyncTransport = transport;
+                }
+            }
+        }
+        return transport;
+    }
+    
+    private static CloseableHttpAsyncClient createAsyncHttpClient(WeChatPayConfig config) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getReadTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(config.getAsyncIoThreads())
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSoTimeout(config.getReadTimeout())
+                .build();
+        
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setDefaultIOReactorConfig(ioReactorConfig)
+                .setDefaultRequestConfig(requestConfig)
+                .setMaxConnTotal(config.getMaxConnTotal())
+                .setMaxConnPerRoute(config.getMaxConnPerRoute())
+                .setKeepAliveStrategy(keepAliveStrategy(config.getKeepAliveTime()))
+                .build();
+        client.start();
+        logger.info("异步HTTP客户端已启动，IO线程数: {}, 最大未完成请求数: {}",
+                config.getAsyncIoThreads(), config.getAsyncMaxInFlight());
+        return client;
+    }
+    
+    private static CloseableHttpClient createHttpClient(WeChatPayConfig config) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getMaxConnTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnPerRoute());
+        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getReadTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+        
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(config.getKeepAliveTime()))
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+    
+    /**
+     * 优先使用服务端Keep-Alive头中的timeout，否则使用配置的默认存活时间
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long defaultKeepAliveTime) {
+        return (response, context) -> {
+            BasicHeaderElementIterator it = new BasicHeaderElementIterator(
+                    response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Long.parseLong(element.getValue()) * 1000;
+                    } catch (NumberFormatException ignored) {
+                        // 忽略格式错误的timeout，使用默认值
+                    }
+                }
+            }
+            return defaultKeepAliveTime;
+        };
+    }
+    
+    private static void closeQuietly(Closeable client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            logger.warn("关闭HttpClient失败", e);
+        }
+    }
+    
     /**
      * 发送GET请求
      * 
@@ -32,22 +200,14 @@ public class HttpClientUtil {
      * @return 响应内容
      */
     public static String doGet(String url, Map<String, String> headers) throws IOException {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpGet httpGet = new HttpGet(url);
-            
-            // 设置请求头
-            if (headers != null) {
-                headers.forEach(httpGet::addHeader);
-            }
-            
-            try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
-                HttpEntity entity = response.getEntity();
-                if (entity != null) {
-                    return EntityUtils.toString(entity, StandardCharsets.UTF_8);
-                }
-            }
+        HttpGet httpGet = new HttpGet(url);
+        
+        // 设置请求头
+        if (headers != null) {
+            headers.forEach(httpGet::addHeader);
         }
-        return null;
+        
+        return execute(httpGet);
     }
     
     /**
@@ -59,29 +219,55 @@ public class HttpClientUtil {
      * @return 响应内容
      */
     public static String doPost(String url, Map<String, String> headers, String body) throws IOException {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost httpPost = new HttpPost(url);
-            
-            // 设置请求头
-            if (headers != null) {
-                headers.forEach(httpPost::addHeader);
-            }
-            
-            // 设置请求体
-            if (body != null) {
-                StringEntity stringEntity = new StringEntity(body, StandardCharsets.UTF_8);
-                stringEntity.setContentType("application/json");
-                httpPost.setEntity(stringEntity);
+        HttpPost httpPost = new HttpPost(url);
+        
+        // 设置请求头
+        if (headers != null) {
+            headers.forEach(httpPost::addHeader);
+        }
+        
+        // 设置请求体
+        if (body != null) {
+            StringEntity stringEntity = new StringEntity(body, StandardCharsets.UTF_8);
+            stringEntity.setContentType("application/json");
+            httpPost.setEntity(stringEntity);
+        }
+        
+        return execute(httpPost);
+    }
+    
+    /**
+     * 使用共享的HttpClient执行请求
+     * 响应体读取完毕后连接自动归还连接池，发送到读完应答的耗时计入接口的网络阶段
+     * 
+     * @param request HTTP请求
+     * @return 响应内容
+     * @throws RejectedExecutionException 接口熔断中或并发数已达上限，请求没有发出
+     */
+    private static String execute(HttpUriRequest request) throws IOException {
+        ApiMetrics.Endpoint metrics = ApiMetrics.forUrl(request.getURI().toString());
+        EndpointGuard guard = acquireGuard(metrics);
+        metrics.requestStarted();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 400) {
+                metrics.recordHttpError();
             }
-            
-            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
-                HttpEntity entity = response.getEntity();
-                if (entity != null) {
-                    return EntityUtils.toString(entity, StandardCharsets.UTF_8);
-                }
+            HttpEntity entity = response.getEntity();
+            String content = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : null;
+            failed = overloaded(status);
+            return content;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.requestFinished(System.nanoTime() - start);
+            if (guard != null) {
+                guard.complete(start, failed);
             }
         }
-        return null;
     }
     
     /**
@@ -96,32 +282,37 @@ public class HttpClientUtil {
      */
     public static String doPostWithSign(String url, String body, String mchId, 
                                        String serialNo, PrivateKey privateKey) throws Exception {
-        // 生成签名
-        long timestamp = System.currentTimeMillis() / 1000;
-        String nonceStr = SignatureUtil.generateNonceStr();
-        
-        // 获取URL路径
-        String urlPath = url.replace("https://api.mch.weixin.qq.com", "");
-        
-        // 构建签名消息
-        String message = SignatureUtil.buildSignMessage("POST", urlPath, timestamp, nonceStr, body);
-        
-        // 生成签名
-        String signature = SignatureUtil.sign(message, privateKey);
-        
-        // 生成Authorization头
-        String authorization = SignatureUtil.getAuthorization(mchId, serialNo, nonceStr, timestamp, signature);
-        
-        // 设置请求头
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Authorization", authorization);
-        headers.put("Accept", "application/json");
+        Map<String, String> headers = buildSignedHeaders("POST", url, body, mchId, serialNo, privateKey);
         headers.put("Content-Type", "application/json");
         
         // 发送请求
         return doPost(url, headers, body);
     }
     
+    /**
+     * 发送带签名的POST请求，请求体为UTF-8编码的字节
+     * 同一段字节既用于签名也直接作为请求体发送，调用方可以传入复用的缓冲区
+     * 
+     * @param url 请求URL
+     * @param body 请求体
+     * @param offset 起始位置
+     * @param length 长度
+     * @param mchId 商户号
+     * @param serialNo 证书序列号
+     * @param privateKey 私钥
+     * @return 响应内容
+     */
+    public static String doPostWithSign(String url, byte[] body, int offset, int length, String mchId,
+                                       String serialNo, PrivateKey privateKey) throws Exception {
+        HttpPost httpPost = new HttpPost(url);
+        buildSignedHeaders("POST", url, body, offset, length, mchId, serialNo, privateKey)
+                .forEach(httpPost::addHeader);
+        httpPost.setEntity(new ByteArrayEntity(body, offset, length, ContentType.APPLICATION_JSON));
+        
+        // 发送请求，返回时请求体已发送完毕，缓冲区可以复用
+        return execute(httpPost);
+    }
+    
     /**
      * 发送带签名的GET请求（用于微信支付API v3）
      * 
@@ -133,18 +324,283 @@ public class HttpClientUtil {
      */
     public static String doGetWithSign(String url, String mchId, 
                                       String serialNo, PrivateKey privateKey) throws Exception {
+        Map<String, String> headers = buildSignedHeaders("GET", url, "", mchId, serialNo, privateKey);
+        
+        // 发送请求
+        return doGet(url, headers);
+    }
+    
+    /**
+     * 异步发送带签名的POST请求（用于微信支付API v3）
+     * 签名在调用线程中完成，请求通过非阻塞HTTP客户端发送，不占用调用线程等待响应
+     * 
+     * @param url 请求URL
+     * @param body 请求体
+     * @param mchId 商户号
+     * @param serialNo 证书序列号
+     * @param privateKey 私钥
+     * @return 响应内容
+     */
+    public static CompletableFuture<String> doPostWithSignAsync(String url, String body, String mchId,
+                                                                String serialNo, PrivateKey privateKey) {
+        try {
+            Map<String, String> headers = buildSignedHeaders("POST", url, body, mchId, serialNo, privateKey);
+            headers.put("Content-Type", "application/json");
+            return doPostAsync(url, headers, body);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+    
+    /**
+     * 异步发送带签名的POST请求，请求体为UTF-8编码的字节
+     * 签名在调用线程中直接对传入的字节完成；请求在IO线程中发送，因此请求体复制一份，调用方返回后即可复用缓冲区
+     * 
+     * @param url 请求URL
+     * @param body 请求体
+     * @param offset 起始位置
+     * @param length 长度
+     * @param mchId 商户号
+     * @param serialNo 证书序列号
+     * @param privateKey 私钥
+     * @return 响应内容
+     */
+    public static CompletableFuture<String> doPostWithSignAsync(String url, byte[] body, int offset, int length,
+                                                                String mchId, String serialNo,
+                                                                PrivateKey privateKey) {
+        try {
+            HttpPost httpPost = new HttpPost(url);
+            buildSignedHeaders("POST", url, body, offset, length, mchId, serialNo, privateKey)
+                    .forEach(httpPost::addHeader);
+            httpPost.setEntity(new ByteArrayEntity(Arrays.copyOfRange(body, offset, offset + length),
+                    ContentType.APPLICATION_JSON));
+            return executeAsync(httpPost);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+    
+    /**
+     * 异步发送带签名的GET请求（用于微信支付API v3）
+     * 
+     * @param url 请求URL
+     * @param mchId 商户号
+     * @param serialNo 证书序列号
+     * @param privateKey 私钥
+     * @return 响应内容
+     */
+    public static CompletableFuture<String> doGetWithSignAsync(String url, String mchId,
+                                                               String serialNo, PrivateKey privateKey) {
+        try {
+            Map<String, String> headers = buildSignedHeaders("GET", url, "", mchId, serialNo, privateKey);
+            return doGetAsync(url, headers);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+    
+    /**
+     * 异步发送GET请求
+     * 
+     * @param url 请求URL
+     * @param headers 请求头
+     * @return 响应内容
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> headers) {
+        HttpGet httpGet = new HttpGet(url);
+        if (headers != null) {
+            headers.forEach(httpGet::addHeader);
+        }
+        return executeAsync(httpGet);
+    }
+    
+    /**
+     * 异步发送POST请求
+     * 
+     * @param url 请求URL
+     * @param headers 请求头
+     * @param body 请求体
+     * @return 响应内容
+     */
+    public static CompletableFuture<String> doPostAsync(String url, Map<String, String> headers, String body) {
+        HttpPost httpPost = new HttpPost(url);
+        if (headers != null) {
+            headers.forEach(httpPost::addHeader);
+        }
+        if (body != null) {
+            StringEntity stringEntity = new StringEntity(body, StandardCharsets.UTF_8);
+            stringEntity.setContentType("application/json");
+            httpPost.setEntity(stringEntity);
+        }
+        return executeAsync(httpPost);
+    }
+    
+    /**
+     * 使用共享的非阻塞HttpClient执行请求
+     * 未完成的请求数达到上限、接口熔断中或并发数已达上限时直接以RejectedExecutionException失败，避免请求无限堆积
+     * 
+     * @param request HTTP请求
+     * @return 响应内容
+     */
+    private static CompletableFuture<String> executeAsync(HttpUriRequest request) {
+        AsyncTransport transport = asyncTransport();
+        ApiMetrics.Endpoint metrics = ApiMetrics.forUrl(request.getURI().toString());
+        CompletableFuture<String> future = new CompletableFuture<>();
+        EndpointGuard guard;
+        try {
+            guard = acquireGuard(metrics);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (!transport.inFlight.tryAcquire()) {
+            if (guard != null) {
+                guard.release();
+            }
+            metrics.recordRejected();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "异步请求数已达上限: " + transport.maxInFlight));
+            return future;
+        }
+        metrics.requestStarted();
+        long start = System.nanoTime();
+        try {
+            transport.client.execute(request, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    transport.inFlight.release();
+                    int status = response.getStatusLine().getStatusCode();
+                    if (status >= 400) {
+                        metrics.recordHttpError();
+                    }
+                    String content = null;
+                    Exception error = null;
+                    try {
+                        HttpEntity entity = response.getEntity();
+                        content = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : null;
+                    } catch (IOException | RuntimeException e) {
+                        metrics.recordError();
+                        error = e;
+                    }
+                    metrics.requestFinished(System.nanoTime() - start);
+                    if (guard != null) {
+                        guard.complete(start, error != null || overloaded(status));
+                    }
+                    if (error == null) {
+                        future.complete(content);
+                    } else {
+                        future.completeExceptionally(error);
+                    }
+                }
+                
+                @Override
+                public void failed(Exception e) {
+                    transport.inFlight.release();
+                    metrics.recordError();
+                    metrics.requestFinished(System.nanoTime() - start);
+                    if (guard != null) {
+                        guard.complete(start, true);
+                    }
+                    future.completeExceptionally(e);
+                }
+                
+                @Override
+                public void cancelled() {
+                    transport.inFlight.release();
+                    metrics.requestFinished(System.nanoTime() - start);
+                    if (guard != null) {
+                        guard.release();
+                    }
+                    future.cancel(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            transport.inFlight.release();
+            metrics.recordError();
+            metrics.requestFinished(System.nanoTime() - start);
+            if (guard != null) {
+                guard.release();
+            }
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * 检查接口的熔断器和并发上限，通过时占用一个并发名额
+     * 
+     * @param metrics 接口指标
+     * @return 接口的熔断和并发状态，未启用时为null
+     * @throws RejectedExecutionException 接口熔断中或并发数已达上限
+     */
+    private static EndpointGuard acquireGuard(ApiMetrics.Endpoint metrics) {
+        WeChatPayConfig config = resilienceConfig;
+        if (!config.isResilienceEnabled()) {
+            return null;
+        }
+        EndpointGuard guard = GUARDS.computeIfAbsent(metrics.getName(), name -> new EndpointGuard(config));
+        if (!guard.breaker.tryAcquire()) {
+            guard.circuitRejected.increment();
+            metrics.recordRejected();
+            long remaining = guard.breaker.getRemainingOpenMillis();
+            throw new RejectedExecutionException("微信支付接口熔断中: " + metrics.getName()
+                    + (remaining > 0 ? "，" + remaining + "ms后重试" : "，正在探测恢复"));
+        }
+        if (!guard.limiter.tryAcquire()) {
+            guard.breaker.release();
+            guard.limitRejected.increment();
+            metrics.recordRejected();
+            throw new RejectedExecutionException("微信支付接口并发数已达上限: " + metrics.getName()
+                    + "，当前上限" + guard.limiter.getLimit());
+        }
+        return guard;
+    }
+    
+    /**
+     * 5xx和429说明网关出错或过载，计入熔断并收缩并发上限；其他4xx是请求本身的问题，不计入
+     */
+    private static boolean overloaded(int status) {
+        return status >= 500 || status == 429;
+    }
+    
+    /**
+     * 各接口的熔断器状态、并发上限、进行中的请求数和两类拒绝数
+     * 
+     * @return 按接口名排序的状态
+     */
+    public static Map<String, Map<String, Object>> getResilienceStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        GUARDS.forEach((name, guard) -> stats.put(name, guard.toMap()));
+        return stats;
+    }
+    
+    /**
+     * 生成微信支付API v3的签名请求头
+     * 
+     * @param method HTTP方法
+     * @param url 请求URL
+     * @param body 请求体（GET请求为空串）
+     * @param mchId 商户号
+     * @param serialNo 证书序列号
+     * @param privateKey 私钥
+     * @return 请求头
+     */
+    private static Map<String, String> buildSignedHeaders(String method, String url, String body, String mchId,
+                                                          String serialNo, PrivateKey privateKey) throws Exception {
         // 生成签名
+        long start = System.nanoTime();
         long timestamp = System.currentTimeMillis() / 1000;
         String nonceStr = SignatureUtil.generateNonceStr();
         
         // 获取URL路径
-        String urlPath = url.replace("https://api.mch.weixin.qq.com", "");
+        String urlPath = urlPath(url);
         
         // 构建签名消息
-        String message = SignatureUtil.buildSignMessage("GET", urlPath, timestamp, nonceStr, "");
+        String message = SignatureUtil.buildSignMessage(method, urlPath, timestamp, nonceStr, body);
         
         // 生成签名
         String signature = SignatureUtil.sign(message, privateKey);
+        ApiMetrics.forUrl(url).record(ApiMetrics.Phase.SIGN, System.nanoTime() - start);
         
         // 生成Authorization头
         String authorization = SignatureUtil.getAuthorization(mchId, serialNo, nonceStr, timestamp, signature);
@@ -153,9 +609,54 @@ public class HttpClientUtil {
         Map<String, String> headers = new HashMap<>();
         headers.put("Authorization", authorization);
         headers.put("Accept", "application/json");
+        return headers;
+    }
+    
+    /**
+     * 生成微信支付API v3的签名请求头，请求体为字节
+     * 
+     * @param method HTTP方法
+     * @param url 请求URL
+     * @param body 请求体
+     * @param offset 起始位置
+     * @param length 长度
+     * @param mchId 商户号
+     * @param serialNo 证书序列号
+     * @param privateKey 私钥
+     * @return 请求头
+     */
+    private static Map<String, String> buildSignedHeaders(String method, String url, byte[] body, int offset,
+                                                          int length, String mchId, String serialNo,
+                                                          PrivateKey privateKey) throws Exception {
+        long start = System.nanoTime();
+        long timestamp = System.currentTimeMillis() / 1000;
+        String nonceStr = SignatureUtil.generateNonceStr();
+        String urlPath = urlPath(url);
+        String signature = SignatureUtil.sign(method, urlPath, timestamp, nonceStr, body, offset, length, privateKey);
+        ApiMetrics.forUrl(url).record(ApiMetrics.Phase.SIGN, System.nanoTime() - start);
         
-        // 发送请求
-        return doGet(url, headers);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", SignatureUtil.getAuthorization(mchId, serialNo, nonceStr, timestamp, signature));
+        headers.put("Accept", "application/json");
+        return headers;
+    }
+    
+    /**
+     * 取出URL中参与签名的部分：去掉协议和域名，保留路径和查询参数
+     */
+    private static String urlPath(String url) {
+        int hostStart = url.indexOf("://");
+        if (hostStart < 0) {
+            return url;
+        }
+        int pathStart = url.indexOf('/', hostStart + 3);
+        return pathStart < 0 ? "/" : url.substring(pathStart);
+    }
+    
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
     }
     
     /**
@@ -177,4 +678,87 @@ public class HttpClientUtil {
             return null;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 解析响应结果，解析耗时计入接口的解析阶段
+     * 
+     * @param url 请求URL
+     * @param response 响应内容
+     * @param clazz 目标类型
+     * @return 解析后的对象
+     */
+    public static <T> T parseResponse(String url, String response, Class<T> clazz) {
+        long start = System.nanoTime();
+        try {
+            return parseResponse(response, clazz);
+        } finally {
+            ApiMetrics.forUrl(url).record(ApiMetrics.Phase.PARSE, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * 单个接口的熔断器和自适应并发上限
+     */
+    private static final class EndpointGuard {
+        
+        private final CircuitBreaker breaker;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final LongAdder circuitRejected = new LongAdder();
+        private final LongAdder limitRejected = new LongAdder();
+        
+        EndpointGuard(WeChatPayConfig config) {
+            this.breaker = new CircuitBreaker(config.getCircuitFailureThreshold(), config.getCircuitOpenTime());
+            this.limiter = new AdaptiveConcurrencyLimiter(config.getConcurrencyInitialLimit(),
+                    config.getConcurrencyMinLimit(), config.getConcurrencyMaxLimit(),
+                    config.getConcurrencyLatencyThreshold(), config.getConcurrencyBackoffRatio());
+        }
+        
+        /**
+         * 请求完成，失败时同时计入熔断器和并发上限；成功但耗时过长只收缩并发上限
+         */
+        void complete(long startNanos, boolean failed) {
+            if (failed) {
+                breaker.onFailure(startNanos);
+                limiter.onFailure(startNanos);
+            } else {
+                breaker.onSuccess(startNanos);
+                limiter.onSuccess(startNanos);
+            }
+        }
+        
+        /**
+         * 请求没有发出或被取消，只归还名额
+         */
+        void release() {
+            breaker.release();
+            limiter.release();
+        }
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("circuitState", breaker.getState().name());
+            map.put("circuitRemainingOpenMillis", breaker.getRemainingOpenMillis());
+            map.put("concurrencyLimit", limiter.getLimit());
+            map.put("inFlight", limiter.getInFlight());
+            map.put("circuitRejected", circuitRejected.sum());
+            map.put("limitRejected", limitRejected.sum());
+            return map;
+        }
+    }
+    
+    /**
+     * 非阻塞HttpClient及其未完成请求数的限制
+     */
+    private static final class AsyncTransport {
+        
+        private final CloseableHttpAsyncClient client;
+        private final Semaphore inFlight;
+        private final int maxInFlight;
+        
+        AsyncTransport(CloseableHttpAsyncClient client, int maxInFlight) {
+            this.client = client;
+            this.inFlight = new Semaphore(maxInFlight);
+            this.maxInFlight = maxInFlight;
+        }
+    }
+}
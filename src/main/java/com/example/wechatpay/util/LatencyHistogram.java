@@ -0,0 +1,134 @@
+package com.example.wechatpay.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定内存的耗时直方图
+ * 以微秒为单位按对数-线性分桶：32微秒以内每微秒一个桶，之后每个2的幂区间再均分为16个桶，
+ * 任意耗时的相对误差不超过1/16，最大记录约19小时，全部桶只占约4KB
+ * 
+ * 记录只是一次原子自增，不加锁、不分配对象，可以在请求路径上直接调用；
+ * 读取分位数时遍历全部桶，只在查看指标时调用
+ */
+public final class LatencyHistogram {
+    
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT = 5;
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    
+    /**
+     * 记录一次耗时
+     * 
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+    
+    /**
+     * 记录次数
+     */
+    public long getCount() {
+        return count.sum();
+    }
+    
+    /**
+     * 平均耗时（毫秒）
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / (double) n / 1000;
+    }
+    
+    /**
+     * 最大耗时（毫秒）
+     */
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+    
+    /**
+     * 分位数耗时（毫秒），返回所在桶的上界，不会低估
+     * 
+     * @param percentile 分位数，取值(0, 1]，如0.99
+     * @return 耗时（毫秒），没有记录时为0
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+    
+    /**
+     * 清空记录，与并发的record之间不保证原子性
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+    
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+    
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+    
+    /**
+     * 用于日志等场景的简要描述
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms", getCount(),
+                getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.99), getMaxMillis());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.wechatpay.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商户订单号生成器
+ * 采用类似Snowflake的结构：毫秒时间戳 + 节点号 + 毫秒内序号，格式为固定21位数字，
+ * 如"1700000000000" + "0001" + "0042"。同一节点内保证唯一且按生成顺序递增，
+ * 不同节点配置不同的节点号即可全局唯一
+ *
+ * 时间戳和序号打包在一个AtomicLong中用CAS更新，不加锁，也不使用SecureRandom；
+ * 同一毫秒内序号用完时等待下一毫秒，系统时钟回拨时沿用上次的时间戳继续递增
+ */
+public class OutTradeNoGenerator {
+    
+    /**
+     * 最大节点号
+     */
+    public static final int MAX_NODE_ID = 9999;
+    
+    /**
+     * 每毫秒最多生成的订单号数
+     */
+    public static final int SEQUENCE_PER_MILLIS = 4096;
+    
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = SEQUENCE_PER_MILLIS - 1;
+    
+    private static final int TIMESTAMP_DIGITS = 13;
+    private static final int NODE_DIGITS = 4;
+    private static final int SEQUENCE_DIGITS = 4;
+    
+    /**
+     * 订单号长度（不含前缀）
+     */
+    public static final int LENGTH = TIMESTAMP_DIGITS + NODE_DIGITS + SEQUENCE_DIGITS;
+    
+    /**
+     * 每个线程复用的字符缓冲区，前缀最长为32位订单号上限减去固定部分
+     */
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[32]);
+    
+    private final int nodeId;
+    
+    /**
+     * 高位为毫秒时间戳，低12位为该毫秒内的序号
+     */
+    private final AtomicLong state = new AtomicLong();
+    
+    /**
+     * @param nodeId 节点号，0到9999，部署多个实例时每个实例必须不同
+     */
+    public OutTradeNoGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be in [0, " + MAX_NODE_ID + "]: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+    
+    /**
+     * 生成订单号
+     * 
+     * @return 21位数字订单号
+     */
+    public String next() {
+        return next("");
+    }
+    
+    /**
+     * 生成带前缀的订单号，如退款单号使用"R"前缀
+     * 
+     * @param prefix 前缀
+     * @return 前缀 + 21位数字
+     */
+    public String next(String prefix) {
+        if (prefix.length() > 32 - LENGTH) {
+            throw new IllegalArgumentException("prefix too long: " + prefix);
+        }
+        long id = nextId();
+        long timestamp = id >>> SEQUENCE_BITS;
+        int sequence = (int) (id & SEQUENCE_MASK);
+        
+        char[] buffer = BUFFER.get();
+        int length = prefix.length();
+        prefix.getChars(0, length, buffer, 0);
+        writeDigits(buffer, length, TIMESTAMP_DIGITS, timestamp);
+        writeDigits(buffer, length + TIMESTAMP_DIGITS, NODE_DIGITS, nodeId);
+        writeDigits(buffer, length + TIMESTAMP_DIGITS + NODE_DIGITS, SEQUENCE_DIGITS, sequence);
+        return new String(buffer, 0, length + LENGTH);
+    }
+    
+    /**
+     * 获取下一个时间戳和序号
+     */
+    private long nextId() {
+        while (true) {
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis();
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // 同一毫秒内，或时钟回拨时沿用上次的时间戳
+                next = current + 1;
+            } else {
+                // 本毫秒序号已用完，等待时钟前进
+                Thread.yield();
+                continue;
+            }
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+    
+    private static void writeDigits(char[] buffer, int offset, int digits, long value) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.wechatpay.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 按线程复用的字节缓冲区
+ * 用于回调通知的读取和解密以及统一下单请求体的生成：Servlet容器的请求线程是池化的，每个线程反复使用同一块缓冲区，
+ * 回调高峰期不再为每个请求分配StringBuilder、行字符串和中间字节数组
+ */
+public final class PooledBuffer {
+    
+    /**
+     * 初始容量，足以容纳一条普通的支付通知
+     */
+    private static final int INITIAL_CAPACITY = 4096;
+    
+    /**
+     * 超过该容量的缓冲区在下次获取时丢弃，避免个别超大请求长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    
+    private static final ThreadLocal<PooledBuffer> BODY = ThreadLocal.withInitial(PooledBuffer::new);
+    private static final ThreadLocal<PooledBuffer> PLAINTEXT = ThreadLocal.withInitial(PooledBuffer::new);
+    private static final ThreadLocal<PooledBuffer> REQUEST = ThreadLocal.withInitial(PooledBuffer::new);
+    
+    private byte[] array = new byte[INITIAL_CAPACITY];
+    private int length;
+    
+    private PooledBuffer() {
+    }
+    
+    /**
+     * 获取当前线程用于读取请求体的缓冲区，内容在同一线程下次获取时被覆盖
+     * 
+     * @return 已清空的缓冲区
+     */
+    public static PooledBuffer body() {
+        return BODY.get().reset();
+    }
+    
+    /**
+     * 获取当前线程用于存放解密结果的缓冲区，内容在同一线程下次获取时被覆盖
+     * 
+     * @return 已清空的缓冲区
+     */
+    public static PooledBuffer plaintext() {
+        return PLAINTEXT.get().reset();
+    }
+    
+    /**
+     * 获取当前线程用于生成请求体的缓冲区，内容在同一线程下次获取时被覆盖
+     * 
+     * @return 已清空的缓冲区
+     */
+    public static PooledBuffer request() {
+        return REQUEST.get().reset();
+    }
+    
+    /**
+     * 读取输入流的全部内容
+     * 
+     * @param in 输入流（不关闭）
+     * @param expectedLength 预期长度（如Content-Length），未知时传-1
+     * @return 当前缓冲区
+     */
+    public PooledBuffer readFrom(InputStream in, int expectedLength) throws IOException {
+        return readFrom(in, expectedLength, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * 读取输入流的全部内容，超过最大长度时停止读取并抛出{@link TooLargeException}
+     * 预期长度通常来自客户端，只用来预分配不超过{@value #MAX_RETAINED_CAPACITY}字节的空间，更长的内容按实际读到的扩容
+     * 
+     * @param in 输入流（不关闭）
+     * @param expectedLength 预期长度（如Content-Length），未知时传-1
+     * @param maxLength 最大长度
+     * @return 当前缓冲区
+     */
+    public PooledBuffer readFrom(InputStream in, int expectedLength, int maxLength) throws IOException {
+        if (expectedLength > maxLength) {
+            throw new TooLargeException(maxLength);
+        }
+        if (expectedLength > 0) {
+            ensureCapacity(Math.min(expectedLength, MAX_RETAINED_CAPACITY));
+        }
+        while (true) {
+            if (length == array.length) {
+                // 缓冲区刚好装满时先探测是否已到结尾，按Content-Length分配的缓冲区不会被无谓地扩容
+                int next = in.read();
+                if (next == -1) {
+                    return this;
+                }
+                if (length >= maxLength) {
+                    throw new TooLargeException(maxLength);
+                }
+                ensureCapacity(length + 1);
+                array[length++] = (byte) next;
+            }
+            int read = in.read(array, length, array.length - length);
+            if (read == -1) {
+                return this;
+            }
+            length += read;
+            if (length > maxLength) {
+                throw new TooLargeException(maxLength);
+            }
+        }
+    }
+    
+    /**
+     * 确保至少能容纳指定字节数，已有内容保留
+     * 
+     * @param capacity 所需容量
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > array.length) {
+            array = Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+        }
+    }
+    
+    /**
+     * 底层数组，有效内容为[0, length)
+     */
+    public byte[] array() {
+        return array;
+    }
+    
+    /**
+     * 有效内容长度
+     */
+    public int length() {
+        return length;
+    }
+    
+    /**
+     * 设置有效内容长度，用于直接写入底层数组之后
+     * 
+     * @param length 长度
+     */
+    public void setLength(int length) {
+        if (length < 0 || length > array.length) {
+            throw new IllegalArgumentException("length out of range: " + length);
+        }
+        this.length = length;
+    }
+    
+    /**
+     * 按指定编码转换为字符串（会产生新的字符串，只在需要打印日志等场景使用）
+     * 
+     * @param charset 编码
+     * @return 字符串
+     */
+    public String toString(Charset charset) {
+        return new String(array, 0, length, charset);
+    }
+    
+    /**
+     * 输入内容超过最大长度
+     */
+    public static final class TooLargeException extends IOException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        TooLargeException(int maxLength) {
+            super("content exceeds " + maxLength + " bytes");
+        }
+    }
+    
+    private PooledBuffer reset() {
+        if (array.length > MAX_RETAINED_CAPACITY) {
+            array = new byte[INITIAL_CAPACITY];
+        }
+        length = 0;
+        return this;
+    }
+}
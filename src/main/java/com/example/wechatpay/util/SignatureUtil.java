@@ -8,10 +8,15 @@ import javax.crypto.Cipher;
 import javax.crypto.Mac;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
 import java.security.spec.PKCS8EncodedKeySpec;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 签名工具类
@@ -21,8 +26,30 @@ public class SignatureUtil {
     
     private static final Logger logger = LoggerFactory.getLogger(SignatureUtil.class);
     
-    private static final String SYMBOLS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final Random RANDOM = new SecureRandom();
+    private static final char[] SYMBOLS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    
+    /**
+     * 只用于为每个线程的随机数生成器提供种子
+     */
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    
+    /**
+     * 每次从随机数生成器批量取出的字节数，约够生成7个32位随机串
+     */
+    private static final int RANDOM_BATCH = 256;
+    
+    /**
+     * 每个线程复用的Signature、Cipher、Mac和MessageDigest实例
+     * JCA引擎对象不是线程安全的，但getInstance的提供者查找开销很大，按线程缓存后每次调用只需更新数据
+     */
+    private static final ThreadLocal<CryptoEngine> ENGINE = ThreadLocal.withInitial(CryptoEngine::new);
+    
+    /**
+     * 最近一次使用的API v3密钥及其SecretKeySpec，通常整个应用只有一个密钥
+     */
+    private static volatile CachedKey aesKey;
+    private static volatile CachedKey hmacKey;
     
     /**
      * 生成签名
@@ -32,10 +59,51 @@ public class SignatureUtil {
      * @return 签名结果（Base64编码）
      */
     public static String sign(String message, PrivateKey privateKey) throws Exception {
-        Signature signature = Signature.getInstance("SHA256withRSA");
-        signature.initSign(privateKey);
-        signature.update(message.getBytes(StandardCharsets.UTF_8));
-        return Base64.encodeBase64String(signature.sign());
+        CryptoEngine engine = ENGINE.get();
+        try {
+            Signature signature = engine.signer(privateKey);
+            signature.update(message.getBytes(StandardCharsets.UTF_8));
+            return Base64.encodeBase64String(signature.sign());
+        } catch (GeneralSecurityException | RuntimeException e) {
+            engine.reset();
+            throw e;
+        }
+    }
+    
+    /**
+     * 生成请求签名
+     * 签名串"HTTP方法\nURL\n时间戳\n随机串\n请求体\n"直接分段写入签名对象，请求体不转换为字符串
+     * 
+     * @param method HTTP方法
+     * @param url URL路径
+     * @param timestamp 时间戳
+     * @param nonceStr 随机串
+     * @param body 请求体（UTF-8）
+     * @param offset 起始位置
+     * @param length 长度
+     * @param privateKey 私钥
+     * @return 签名结果（Base64编码）
+     */
+    public static String sign(String method, String url, long timestamp, String nonceStr,
+                              byte[] body, int offset, int length, PrivateKey privateKey) throws Exception {
+        CryptoEngine engine = ENGINE.get();
+        try {
+            Signature signature = engine.signer(privateKey);
+            signature.update(method.getBytes(StandardCharsets.UTF_8));
+            signature.update((byte) '\n');
+            signature.update(url.getBytes(StandardCharsets.UTF_8));
+            signature.update((byte) '\n');
+            signature.update(Long.toString(timestamp).getBytes(StandardCharsets.UTF_8));
+            signature.update((byte) '\n');
+            signature.update(nonceStr.getBytes(StandardCharsets.UTF_8));
+            signature.update((byte) '\n');
+            signature.update(body, offset, length);
+            signature.update((byte) '\n');
+            return Base64.encodeBase64String(signature.sign());
+        } catch (GeneralSecurityException | RuntimeException e) {
+            engine.reset();
+            throw e;
+        }
     }
     
     /**
@@ -47,10 +115,46 @@ public class SignatureUtil {
      * @return 验证结果
      */
     public static boolean verify(String message, String signature, PublicKey publicKey) throws Exception {
-        Signature sig = Signature.getInstance("SHA256withRSA");
-        sig.initVerify(publicKey);
-        sig.update(message.getBytes(StandardCharsets.UTF_8));
-        return sig.verify(Base64.decodeBase64(signature));
+        CryptoEngine engine = ENGINE.get();
+        try {
+            Signature sig = engine.verifier(publicKey);
+            sig.update(message.getBytes(StandardCharsets.UTF_8));
+            return sig.verify(Base64.decodeBase64(signature));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            engine.reset();
+            throw e;
+        }
+    }
+    
+    /**
+     * 验证回调通知或应答的签名
+     * 签名串"时间戳\n随机串\n报文主体\n"直接分段写入验签对象，不拼接字符串也不复制报文
+     * 
+     * @param timestamp 时间戳
+     * @param nonce 随机串
+     * @param body 报文主体（UTF-8）
+     * @param offset 起始位置
+     * @param length 长度
+     * @param signature 签名（Base64编码）
+     * @param publicKey 平台证书公钥
+     * @return 验证结果
+     */
+    public static boolean verify(String timestamp, String nonce, byte[] body, int offset, int length,
+                                 String signature, PublicKey publicKey) throws Exception {
+        CryptoEngine engine = ENGINE.get();
+        try {
+            Signature sig = engine.verifier(publicKey);
+            sig.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            sig.update((byte) '\n');
+            sig.update(nonce.getBytes(StandardCharsets.UTF_8));
+            sig.update((byte) '\n');
+            sig.update(body, offset, length);
+            sig.update((byte) '\n');
+            return sig.verify(Base64.decodeBase64(signature));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            engine.reset();
+            throw e;
+        }
     }
     
     /**
@@ -97,9 +201,7 @@ public class SignatureUtil {
      */
     public static String generateNonceStr(int length) {
         char[] nonceChars = new char[length];
-        for (int index = 0; index < nonceChars.length; ++index) {
-            nonceChars[index] = SYMBOLS.charAt(RANDOM.nextInt(SYMBOLS.length()));
-        }
+        ENGINE.get().fillNonce(nonceChars);
         return new String(nonceChars);
     }
     
@@ -130,6 +232,22 @@ public class SignatureUtil {
         return keyFactory.generatePrivate(spec);
     }
     
+    /**
+     * 解析平台证书
+     * 
+     * @param certificateStr 证书字符串（PEM格式，可以包含多个证书）
+     * @return 证书列表
+     */
+    public static List<X509Certificate> loadCertificates(String certificateStr) throws Exception {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (Certificate certificate : factory.generateCertificates(
+                new ByteArrayInputStream(certificateStr.getBytes(StandardCharsets.UTF_8)))) {
+            certificates.add((X509Certificate) certificate);
+        }
+        return certificates;
+    }
+    
     /**
      * AES-GCM解密
      * 用于解密微信支付回调通知的敏感信息
@@ -142,8 +260,8 @@ public class SignatureUtil {
      */
     public static String decryptAesGcm(String associatedData, String nonce, 
                                       String ciphertext, String apiV3Key) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        SecretKeySpec key = new SecretKeySpec(apiV3Key.getBytes(StandardCharsets.UTF_8), "AES");
+        Cipher cipher = ENGINE.get().cipher();
+        SecretKeySpec key = aesKey(apiV3Key);
         GCMParameterSpec spec = new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8));
         
         cipher.init(Cipher.DECRYPT_MODE, key, spec);
@@ -153,6 +271,30 @@ public class SignatureUtil {
         return new String(decryptedBytes, StandardCharsets.UTF_8);
     }
     
+    /**
+     * AES-GCM解密到缓冲区
+     * 明文直接写入output，不生成中间字符串，调用方可以从字节解析JSON
+     * 
+     * @param associatedData 附加数据
+     * @param nonce 随机串
+     * @param ciphertext 密文（Base64编码）
+     * @param apiV3Key API v3密钥
+     * @param output 存放明文的缓冲区，原有内容被覆盖
+     */
+    public static void decryptAesGcm(String associatedData, String nonce, String ciphertext,
+                                     String apiV3Key, PooledBuffer output) throws Exception {
+        Cipher cipher = ENGINE.get().cipher();
+        GCMParameterSpec spec = new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8));
+        cipher.init(Cipher.DECRYPT_MODE, aesKey(apiV3Key), spec);
+        if (associatedData != null) {
+            cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        byte[] encrypted = Base64.decodeBase64(ciphertext);
+        output.ensureCapacity(cipher.getOutputSize(encrypted.length));
+        output.setLength(cipher.doFinal(encrypted, 0, encrypted.length, output.array(), 0));
+    }
+    
     /**
      * HMAC-SHA256签名
      * 用于API v2版本的签名
@@ -162,20 +304,15 @@ public class SignatureUtil {
      * @return 签名结果（十六进制字符串）
      */
     public static String hmacSha256(String data, String key) throws Exception {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        mac.init(secretKey);
-        byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+        CryptoEngine engine = ENGINE.get();
+        try {
+            Mac mac = engine.mac(hmacKey(key));
+            byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            return toHex(hash);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            engine.reset();
+            throw e;
         }
-        return hexString.toString().toUpperCase();
     }
     
     /**
@@ -186,17 +323,171 @@ public class SignatureUtil {
      * @return 签名结果（十六进制字符串）
      */
     public static String md5(String data) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("MD5");
+        MessageDigest md = ENGINE.get().md5();
         byte[] hash = md.digest(data.getBytes(StandardCharsets.UTF_8));
+        return toHex(hash);
+    }
+    
+    /**
+     * 转换为大写十六进制字符串
+     */
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+    
+    private static SecretKeySpec aesKey(String apiV3Key) {
+        CachedKey cached = aesKey;
+        if (cached == null || !cached.secret.equals(apiV3Key)) {
+            cached = new CachedKey(apiV3Key, "AES");
+            aesKey = cached;
+        }
+        return cached.spec;
+    }
+    
+    private static SecretKeySpec hmacKey(String key) {
+        CachedKey cached = hmacKey;
+        if (cached == null || !cached.secret.equals(key)) {
+            cached = new CachedKey(key, "HmacSHA256");
+            hmacKey = cached;
+        }
+        return cached.spec;
+    }
+    
+    /**
+     * 密钥字符串及其对应的SecretKeySpec
+     */
+    private static final class CachedKey {
+        
+        private final String secret;
+        private final SecretKeySpec spec;
+        
+        CachedKey(String secret, String algorithm) {
+            this.secret = secret;
+            this.spec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm);
+        }
+    }
+    
+    /**
+     * 单个线程持有的加解密引擎
+     * Signature和Mac完成一次计算后会回到初始化后的状态，密钥不变时无需重新初始化；
+     * 计算中途抛出异常时清除记录的密钥，下次使用前重新初始化
+     */
+    private static final class CryptoEngine {
+        
+        private Signature signer;
+        private PrivateKey signerKey;
+        private Signature verifier;
+        private PublicKey verifierKey;
+        private Cipher cipher;
+        private Mac mac;
+        private SecretKeySpec macKey;
+        private MessageDigest md5;
+        private SecureRandom random;
+        private final byte[] randomBytes = new byte[RANDOM_BATCH];
+        private int randomPosition = RANDOM_BATCH;
+        
+        Signature signer(PrivateKey privateKey) throws GeneralSecurityException {
+            if (signer == null) {
+                signer = Signature.getInstance("SHA256withRSA");
+            }
+            if (signerKey != privateKey) {
+                signerKey = null;
+                signer.initSign(privateKey);
+                signerKey = privateKey;
+            }
+            return signer;
+        }
+        
+        Signature verifier(PublicKey publicKey) throws GeneralSecurityException {
+            if (verifier == null) {
+                verifier = Signature.getInstance("SHA256withRSA");
+            }
+            if (verifierKey != publicKey) {
+                verifierKey = null;
+                verifier.initVerify(publicKey);
+                verifierKey = publicKey;
+            }
+            return verifier;
+        }
+        
+        Cipher cipher() throws GeneralSecurityException {
+            // GCM每次解密的nonce不同，必须重新init，这里只省去getInstance
+            if (cipher == null) {
+                cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            }
+            return cipher;
+        }
+        
+        Mac mac(SecretKeySpec key) throws GeneralSecurityException {
+            if (mac == null) {
+                mac = Mac.getInstance("HmacSHA256");
+            }
+            if (macKey != key) {
+                macKey = null;
+                mac.init(key);
+                macKey = key;
+            }
+            return mac;
+        }
+        
+        /**
+         * 用随机字符填满数组
+         * 随机字节批量取自本线程的SecureRandom，每个字节取低6位，落在字符表之外（62、63）时丢弃重取，
+         * 保证每个字符等概率
+         */
+        void fillNonce(char[] chars) {
+            int index = 0;
+            while (index < chars.length) {
+                if (randomPosition == RANDOM_BATCH) {
+                    nextRandomBatch();
+                }
+                int value = randomBytes[randomPosition++] & 0x3F;
+                if (value < SYMBOLS.length) {
+                    chars[index++] = SYMBOLS[value];
+                }
+            }
+        }
+        
+        /**
+         * 线程各自持有SHA1PRNG实例，首次使用时从共享的SecureRandom取种子，之后不再竞争同一把锁
+         */
+        private void nextRandomBatch() {
+            if (random == null) {
+                byte[] seed = new byte[32];
+                SEED_SOURCE.nextBytes(seed);
+                try {
+                    random = SecureRandom.getInstance("SHA1PRNG");
+                } catch (NoSuchAlgorithmException e) {
+                    random = new SecureRandom();
+                }
+                random.setSeed(seed);
+            }
+            random.nextBytes(randomBytes);
+            randomPosition = 0;
+        }
+        
+        /**
+         * 计算中途失败后调用，使下次使用前重新初始化
+         */
+        void reset() {
+            signerKey = null;
+            verifierKey = null;
+            macKey = null;
+            if (md5 != null) {
+                md5.reset();
+            }
+        }
         
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
+        MessageDigest md5() throws GeneralSecurityException {
+            if (md5 == null) {
+                md5 = MessageDigest.getInstance("MD5");
             }
-            hexString.append(hex);
+            return md5;
         }
-        return hexString.toString().toUpperCase();
     }
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.example.wechatpay.util;
+
+import com.example.wechatpay.model.request.UnifiedOrderRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 统一下单请求体生成器
+ * appid、mchid和notify_url对同一商户固定不变，在创建时预先编码为JSON前缀；
+ * 每次下单只把订单相关的字段按UTF-8直接写入缓冲区，不经过反射序列化，也不生成中间字符串，
+ * 写好的字节同时用于签名和发送
+ * 
+ * 输出与fastjson序列化UnifiedOrderRequest的结果等价：值为null的字段不输出
+ * 创建后不再修改，可以在多个线程间共享
+ */
+public final class UnifiedOrderBodyWriter {
+    
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    
+    private static final byte[] DESCRIPTION = name("description");
+    private static final byte[] OUT_TRADE_NO = name("out_trade_no");
+    private static final byte[] TIME_EXPIRE = name("time_expire");
+    private static final byte[] ATTACH = name("attach");
+    private static final byte[] GOODS_TAG = name("goods_tag");
+    private static final byte[] AMOUNT = name("amount");
+    private static final byte[] TOTAL = name("total");
+    private static final byte[] CURRENCY = name("currency");
+    private static final byte[] PAYER = name("payer");
+    private static final byte[] OPENID = name("openid");
+    private static final byte[] DETAIL = name("detail");
+    private static final byte[] COST_PRICE = name("cost_price");
+    private static final byte[] INVOICE_ID = name("invoice_id");
+    private static final byte[] GOODS_DETAIL = name("goods_detail");
+    private static final byte[] MERCHANT_GOODS_ID = name("merchant_goods_id");
+    private static final byte[] WECHATPAY_GOODS_ID = name("wechatpay_goods_id");
+    private static final byte[] GOODS_NAME = name("goods_name");
+    private static final byte[] QUANTITY = name("quantity");
+    private static final byte[] UNIT_PRICE = name("unit_price");
+    private static final byte[] SCENE_INFO = name("scene_info");
+    private static final byte[] PAYER_CLIENT_IP = name("payer_client_ip");
+    private static final byte[] DEVICE_ID = name("device_id");
+    private static final byte[] STORE_INFO = name("store_info");
+    private static final byte[] ID = name("id");
+    private static final byte[] NAME = name("name");
+    private static final byte[] AREA_CODE = name("area_code");
+    private static final byte[] ADDRESS = name("address");
+    private static final byte[] H5_INFO = name("h5_info");
+    private static final byte[] TYPE = name("type");
+    private static final byte[] APP_NAME = name("app_name");
+    private static final byte[] APP_URL = name("app_url");
+    private static final byte[] BUNDLE_ID = name("bundle_id");
+    private static final byte[] PACKAGE_NAME = name("package_name");
+    private static final byte[] SETTLE_INFO = name("settle_info");
+    private static final byte[] PROFIT_SHARING = name("profit_sharing");
+    
+    /**
+     * 预先编码的 {"appid":"...","mchid":"...","notify_url":"..."
+     */
+    private final byte[] prefix;
+    private final boolean prefixHasFields;
+    
+    /**
+     * @param appId 应用ID
+     * @param mchId 直连商户号
+     * @param notifyUrl 通知地址
+     */
+    public UnifiedOrderBodyWriter(String appId, String mchId, String notifyUrl) {
+        PooledBuffer out = PooledBuffer.request();
+        writeByte(out, '{');
+        boolean comma = writeString(out, false, name("appid"), appId);
+        comma = writeString(out, comma, name("mchid"), mchId);
+        comma = writeString(out, comma, name("notify_url"), notifyUrl);
+        this.prefix = Arrays.copyOf(out.array(), out.length());
+        this.prefixHasFields = comma;
+    }
+    
+    /**
+     * 生成请求体
+     * 请求中的appid、mchid和notify_url被忽略，使用创建时的配置
+     * 
+     * @param request 统一下单请求
+     * @param out 输出缓冲区，原有内容被覆盖
+     * @return 输出缓冲区
+     */
+    public PooledBuffer write(UnifiedOrderRequest request, PooledBuffer out) {
+        out.setLength(0);
+        writeBytes(out, prefix);
+        boolean comma = prefixHasFields;
+        comma = writeString(out, comma, DESCRIPTION, request.getDescription());
+        comma = writeString(out, comma, OUT_TRADE_NO, request.getOutTradeNo());
+        comma = writeString(out, comma, TIME_EXPIRE, request.getTimeExpire());
+        comma = writeString(out, comma, ATTACH, request.getAttach());
+        comma = writeString(out, comma, GOODS_TAG, request.getGoodsTag());
+        
+        UnifiedOrderRequest.Amount amount = request.getAmount();
+        if (amount != null) {
+            beginObject(out, comma, AMOUNT);
+            boolean inner = writeNumber(out, false, TOTAL, amount.getTotal());
+            writeString(out, inner, CURRENCY, amount.getCurrency());
+            writeByte(out, '}');
+            comma = true;
+        }
+        
+        UnifiedOrderRequest.Payer payer = request.getPayer();
+        if (payer != null) {
+            beginObject(out, comma, PAYER);
+            writeString(out, false, OPENID, payer.getOpenid());
+            writeByte(out, '}');
+            comma = true;
+        }
+        
+        UnifiedOrderRequest.Detail detail = request.getDetail();
+        if (detail != null) {
+            beginObject(out, comma, DETAIL);
+            boolean inner = writeNumber(out, false, COST_PRICE, detail.getCostPrice());
+            inner = writeString(out, inner, INVOICE_ID, detail.getInvoiceId());
+            writeGoodsDetail(out, inner, detail.getGoodsDetail());
+            writeByte(out, '}');
+            comma = true;
+        }
+        
+        UnifiedOrderRequest.SceneInfo sceneInfo = request.getSceneInfo();
+        if (sceneInfo != null) {
+            beginObject(out, comma, SCENE_INFO);
+            boolean inner = writeString(out, false, PAYER_CLIENT_IP, sceneInfo.getPayerClientIp());
+            inner = writeString(out, inner, DEVICE_ID, sceneInfo.getDeviceId());
+            inner = writeStoreInfo(out, inner, sceneInfo.getStoreInfo());
+            writeH5Info(out, inner, sceneInfo.getH5Info());
+            writeByte(out, '}');
+            comma = true;
+        }
+        
+        UnifiedOrderRequest.SettleInfo settleInfo = request.getSettleInfo();
+        if (settleInfo != null) {
+            beginObject(out, comma, SETTLE_INFO);
+            if (settleInfo.getProfitSharing() != null) {
+                writeBytes(out, PROFIT_SHARING);
+                writeAscii(out, settleInfo.getProfitSharing() ? "true" : "false");
+            }
+            writeByte(out, '}');
+        }
+        
+        writeByte(out, '}');
+        return out;
+    }
+    
+    private static boolean writeGoodsDetail(PooledBuffer out, boolean comma,
+                                            List<UnifiedOrderRequest.GoodsDetail> goodsDetail) {
+        if (goodsDetail == null) {
+            return comma;
+        }
+        if (comma) {
+            writeByte(out, ',');
+        }
+        writeBytes(out, GOODS_DETAIL);
+        writeByte(out, '[');
+        for (int i = 0; i < goodsDetail.size(); i++) {
+            if (i > 0) {
+                writeByte(out, ',');
+            }
+            UnifiedOrderRequest.GoodsDetail goods = goodsDetail.get(i);
+            if (goods == null) {
+                writeAscii(out, "null");
+                continue;
+            }
+            writeByte(out, '{');
+            boolean inner = writeString(out, false, MERCHANT_GOODS_ID, goods.getMerchantGoodsId());
+            inner = writeString(out, inner, WECHATPAY_GOODS_ID, goods.getWechatpayGoodsId());
+            inner = writeString(out, inner, GOODS_NAME, goods.getGoodsName());
+            inner = writeNumber(out, inner, QUANTITY, goods.getQuantity());
+            writeNumber(out, inner, UNIT_PRICE, goods.getUnitPrice());
+            writeByte(out, '}');
+        }
+        writeByte(out, ']');
+        return true;
+    }
+    
+    private static boolean writeStoreInfo(PooledBuffer out, boolean comma, UnifiedOrderRequest.StoreInfo storeInfo) {
+        if (storeInfo == null) {
+            return comma;
+        }
+        beginObject(out, comma, STORE_INFO);
+        boolean inner = writeString(out, false, ID, storeInfo.getId());
+        inner = writeString(out, inner, NAME, storeInfo.getName());
+        inner = writeString(out, inner, AREA_CODE, storeInfo.getAreaCode());
+        writeString(out, inner, ADDRESS, storeInfo.getAddress());
+        writeByte(out, '}');
+        return true;
+    }
+    
+    private static boolean writeH5Info(PooledBuffer out, boolean comma, UnifiedOrderRequest.H5Info h5Info) {
+        if (h5Info == null) {
+            return comma;
+        }
+        beginObject(out, comma, H5_INFO);
+        boolean inner = writeString(out, false, TYPE, h5Info.getType());
+        inner = writeString(out, inner, APP_NAME, h5Info.getAppName());
+        inner = writeString(out, inner, APP_URL, h5Info.getAppUrl());
+        inner = writeString(out, inner, BUNDLE_ID, h5Info.getBundleId());
+        writeString(out, inner, PACKAGE_NAME, h5Info.getPackageName());
+        writeByte(out, '}');
+        return true;
+    }
+    
+    private static void beginObject(PooledBuffer out, boolean comma, byte[] name) {
+        if (comma) {
+            writeByte(out, ',');
+        }
+        writeBytes(out, name);
+        writeByte(out, '{');
+    }
+    
+    /**
+     * 写入字符串字段，值为null时不输出
+     * 
+     * @return 写入后是否需要在下一个字段前加逗号
+     */
+    private static boolean writeString(PooledBuffer out, boolean comma, byte[] name, String value) {
+        if (value == null) {
+            return comma;
+        }
+        // 每个字符最多占6个字节（控制字符的unicode转义），一次性扩容后直接写数组
+        int length = value.length();
+        out.ensureCapacity(out.length() + name.length + length * 6 + 3);
+        byte[] array = out.array();
+        int position = out.length();
+        if (comma) {
+            array[position++] = ',';
+        }
+        System.arraycopy(name, 0, array, position, name.length);
+        position += name.length;
+        array[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    array[position++] = '\\';
+                    array[position++] = (byte) c;
+                } else if (c >= 0x20) {
+                    array[position++] = (byte) c;
+                } else if (c == '\n') {
+                    array[position++] = '\\';
+                    array[position++] = 'n';
+                } else if (c == '\r') {
+                    array[position++] = '\\';
+                    array[position++] = 'r';
+                } else if (c == '\t') {
+                    array[position++] = '\\';
+                    array[position++] = 't';
+                } else {
+                    array[position++] = '\\';
+                    array[position++] = 'u';
+                    array[position++] = '0';
+                    array[position++] = '0';
+                    array[position++] = HEX[c >> 4];
+                    array[position++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                array[position++] = (byte) (0xC0 | (c >> 6));
+                array[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                array[position++] = (byte) (0xF0 | (codePoint >> 18));
+                array[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                array[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                array[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与String.getBytes一致替换为'?'
+                array[position++] = '?';
+            } else {
+                array[position++] = (byte) (0xE0 | (c >> 12));
+                array[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                array[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        array[position++] = '"';
+        out.setLength(position);
+        return true;
+    }
+    
+    /**
+     * 写入整数字段，值为null时不输出
+     * 
+     * @return 写入后是否需要在下一个字段前加逗号
+     */
+    private static boolean writeNumber(PooledBuffer out, boolean comma, byte[] name, Integer value) {
+        if (value == null) {
+            return comma;
+        }
+        // 最长11个字符（-2147483648）
+        out.ensureCapacity(out.length() + name.length + 12);
+        byte[] array = out.array();
+        int position = out.length();
+        if (comma) {
+            array[position++] = ',';
+        }
+        System.arraycopy(name, 0, array, position, name.length);
+        position += name.length;
+        long number = value;
+        if (number < 0) {
+            array[position++] = '-';
+            number = -number;
+        }
+        int digits = 1;
+        for (long bound = 10; bound <= number; bound *= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            array[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        out.setLength(position + digits);
+        return true;
+    }
+    
+    private static void writeAscii(PooledBuffer out, String value) {
+        out.ensureCapacity(out.length() + value.length());
+        byte[] array = out.array();
+        int position = out.length();
+        for (int i = 0; i < value.length(); i++) {
+            array[position++] = (byte) value.charAt(i);
+        }
+        out.setLength(position);
+    }
+    
+    private static void writeBytes(PooledBuffer out, byte[] bytes) {
+        out.ensureCapacity(out.length() + bytes.length);
+        System.arraycopy(bytes, 0, out.array(), out.length(), bytes.length);
+        out.setLength(out.length() + bytes.length);
+    }
+    
+    private static void writeByte(PooledBuffer out, char c) {
+        out.ensureCapacity(out.length() + 1);
+        out.array()[out.length()] = (byte) c;
+        out.setLength(out.length() + 1);
+    }
+    
+    private static byte[] name(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+}